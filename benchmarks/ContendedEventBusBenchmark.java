@@ -0,0 +1,69 @@
+package org.home.core.benchmark;
+
+import org.home.core.EventBus;
+import org.home.core.service.MultiThreadedEventBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventBusBenchmark} with four publishing threads, for the buses that can be published to concurrently.
+ * Use -t to try other publisher counts.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContendedEventBusBenchmark {
+
+    @Param({"multi", "ringBuffer", "ringBufferInline"})
+    public String bus;
+
+    @Param({"1", "4"})
+    public int subscribers;
+
+    @Param({"1", "4", "8"})
+    public int threadPoolSize;
+
+    private EventBus<EventBusBenchmark.Delivery> eventBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventBus = EventBusBenchmark.createBus(bus, threadPoolSize, subscribers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ((MultiThreadedEventBus<EventBusBenchmark.Delivery>) eventBus).shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(EventBusBenchmark.BATCH)
+    public void publishToDeliverThroughput(EventBusBenchmark.PublisherState publisher) {
+        publisher.publishAndAwait(eventBus, EventBusBenchmark.BATCH, subscribers);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void publishToDeliverLatency(EventBusBenchmark.PublisherState publisher) {
+        publisher.publishAndAwait(eventBus, 1, subscribers);
+    }
+}
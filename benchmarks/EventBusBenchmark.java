@@ -0,0 +1,111 @@
+package org.home.core.benchmark;
+
+import org.home.core.EventBus;
+import org.home.core.WaitStrategy;
+import org.home.core.service.MultiThreadedEventBus;
+import org.home.core.service.SingleThreadedEventBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publish to deliver for both buses with one publisher, across subscriber counts and dispatch pool sizes.
+ * Every operation waits until all subscribers have seen the event, so asynchronous buses are measured end to end
+ * rather than by how fast they enqueue. Latency percentiles come from {@link Mode#SampleTime}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventBusBenchmark {
+
+    static final int BATCH = 256;
+
+    @Param({"single", "multi", "ringBuffer", "ringBufferInline"})
+    public String bus;
+
+    @Param({"1", "4", "16"})
+    public int subscribers;
+
+    // Ignored by the single threaded and inline buses, which call subscribers on their dispatch thread
+    @Param({"1", "4"})
+    public int threadPoolSize;
+
+    private EventBus<Delivery> eventBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventBus = createBus(bus, threadPoolSize, subscribers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (eventBus instanceof MultiThreadedEventBus<Delivery> multiThreaded) { multiThreaded.shutdown(); }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void publishToDeliverThroughput(PublisherState publisher) {
+        publisher.publishAndAwait(eventBus, BATCH, subscribers);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void publishToDeliverLatency(PublisherState publisher) {
+        publisher.publishAndAwait(eventBus, 1, subscribers);
+    }
+
+    static EventBus<Delivery> createBus(String bus, int threadPoolSize, int subscribers) {
+        final EventBus<Delivery> eventBus = switch (bus) {
+            case "single" -> new SingleThreadedEventBus<>();
+            case "multi" -> new MultiThreadedEventBus<>(threadPoolSize);
+            case "ringBuffer" -> new MultiThreadedEventBus<>(threadPoolSize, 1024, WaitStrategy.yielding());
+            case "ringBufferInline" -> MultiThreadedEventBus.<Delivery>builder()
+                    .ringBuffer(1024, WaitStrategy.yielding())
+                    .inlineDelivery()
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown Bus " + bus);
+        };
+        for (int i = 0; i < subscribers; i++) { eventBus.addSubscriber(Delivery.class, Delivery::delivered); }
+        return eventBus;
+    }
+
+    /**
+     * Reused for every publish, so the benchmark itself does not allocate and the gc profiler only sees the bus.
+     */
+    static class Delivery {
+        private final AtomicLong remaining = new AtomicLong();
+
+        void delivered() { remaining.decrementAndGet(); }
+    }
+
+    @State(Scope.Thread)
+    public static class PublisherState {
+        private final Delivery delivery = new Delivery();
+        // Spins briefly then yields, so the publisher does not starve the bus threads when cores are short
+        private final WaitStrategy waitStrategy = WaitStrategy.yielding();
+
+        void publishAndAwait(EventBus<Delivery> eventBus, int events, int subscribers) {
+            delivery.remaining.set((long) events * subscribers);
+            for (int i = 0; i < events; i++) { eventBus.publishEvent(delivery); }
+            for (int attempt = 0; delivery.remaining.get() > 0; attempt++) { waitStrategy.idle(attempt); }
+        }
+    }
+}
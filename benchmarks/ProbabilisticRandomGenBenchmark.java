@@ -0,0 +1,132 @@
+package org.home.core.benchmark;
+
+import org.home.core.ProbabilisticRandomGen;
+import org.home.core.service.AliasTable;
+import org.home.core.service.DynamicWeightedRandomGen;
+import org.home.core.service.ProbabilisticRandomGenImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampling ops/sec on every path of {@link ProbabilisticRandomGenImpl} and {@link AliasTable}, and alias build time,
+ * across distribution sizes from one that fits in L1 to one that does not fit in L2.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProbabilisticRandomGenBenchmark {
+
+    private static final int BULK = 1024;
+
+    @Param({"8", "1024", "1048576"})
+    public int size;
+
+    private List<ProbabilisticRandomGen.NumAndProbability> weightedNums;
+    private double[] weights;
+    private ProbabilisticRandomGenImpl perThreadGen;
+    private ProbabilisticRandomGenImpl splittableGen;
+    private ProbabilisticRandomGenImpl legacyGen;
+    private DynamicWeightedRandomGen dynamicGen;
+    private AliasTable aliasTable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Fixed seed so every run samples the same skewed distribution
+        final SplittableRandom random = new SplittableRandom(42);
+        weights = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) { total += weights[i] = random.nextDouble(); }
+
+        weightedNums = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            weightedNums.add(new ProbabilisticRandomGen.NumAndProbability(i, (float) (weights[i] / total)));
+        }
+
+        perThreadGen = new ProbabilisticRandomGenImpl(weightedNums, null);
+        splittableGen = ProbabilisticRandomGenImpl.perThread(weightedNums, 42);
+        legacyGen = new ProbabilisticRandomGenImpl(weightedNums, new Random(42));
+        dynamicGen = new DynamicWeightedRandomGen(weightedNums);
+        aliasTable = AliasTable.build(weights, AliasTable.Precision.FIXED_32);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int nextFromSample() {
+        return perThreadGen.nextFromSample();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int nextFromSampleSplittable() {
+        return splittableGen.nextFromSample();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int nextFromSampleSharedRandom() {
+        return legacyGen.nextFromSample();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int nextFromSampleDynamic() {
+        return dynamicGen.nextFromSample();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int nextFromSampleAliasTable() {
+        return aliasTable.nextFromSample();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(BULK)
+    public int[] bulkFill(BulkState state) {
+        perThreadGen.nextFromSample(state.dest, 0, BULK);
+        return state.dest;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ProbabilisticRandomGenImpl aliasBuild() {
+        return new ProbabilisticRandomGenImpl(weightedNums, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public AliasTable aliasTableBuild() {
+        return AliasTable.build(weights, AliasTable.Precision.FIXED_32);
+    }
+
+    @State(Scope.Thread)
+    public static class BulkState {
+        private final int[] dest = new int[BULK];
+    }
+}
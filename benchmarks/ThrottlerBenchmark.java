@@ -0,0 +1,105 @@
+package org.home.core.benchmark;
+
+import org.home.core.Throttler;
+import org.home.core.service.GcraThrottler;
+import org.home.core.service.SlidingWindowThrottler;
+import org.home.core.service.ThrottlerFactory;
+import org.home.core.service.ThrottlerImpl;
+import org.home.core.service.TokenBucketThrottler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended throttling. The mixed group has three threads checking shouldProceed while one records requests on
+ * {@link ThrottlerImpl}. tryAcquire compares every algorithm from {@link ThrottlerFactory} with four threads
+ * checking and recording at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThrottlerBenchmark {
+
+    // Short window, so the rolling log holds a realistic number of requests rather than everything ever added
+    private static final long WINDOW_MILLIS = 100;
+
+    @State(Scope.Group)
+    public static class RollingLogState {
+        @Param({"1000", "100000"})
+        public int maxRequests;
+
+        private ThrottlerImpl<String> throttler;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            throttler = new ThrottlerImpl<>(maxRequests, WINDOW_MILLIS, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            throttler.quit();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AlgorithmState {
+        @Param({"ROLLING_LOG", "SLIDING_WINDOW", "TOKEN_BUCKET", "GCRA"})
+        public ThrottlerFactory.Algorithm algorithm;
+
+        private Throttler<String> throttler;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            throttler = ThrottlerFactory.create(algorithm, 1000, WINDOW_MILLIS);
+        }
+
+        // quit is not on the interface, every algorithm holds a scheduler for notifyWhenCanProceed
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            switch (throttler) {
+                case ThrottlerImpl<String> rollingLog -> rollingLog.quit();
+                case SlidingWindowThrottler<String> slidingWindow -> slidingWindow.quit();
+                case TokenBucketThrottler<String> tokenBucket -> tokenBucket.quit();
+                case GcraThrottler<String> gcra -> gcra.quit();
+                default -> throw new IllegalStateException("Unknown Throttler " + throttler);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Throttler.ThrottleResult shouldProceed(RollingLogState state) {
+        return state.throttler.shouldProceed();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void addRequest(RollingLogState state) {
+        state.throttler.addRequest(new Throttler.Event<>("request"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean tryAcquire(AlgorithmState state) {
+        return state.throttler.tryAcquire(1);
+    }
+}
@@ -0,0 +1,395 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Limits requests in flight instead of requests per window, with a limit that adapts to how the backend copes.
+ * Every acquired permit has to be given back through {@link #onSuccess}, {@link #onDropped} or {@link #onIgnored}
+ * once the request completes. Each completion feeds its latency, or the fact that it was dropped, to a
+ * {@link LimitAlgorithm} that raises the limit while the backend keeps up and cuts it when latency climbs or
+ * requests fail. The limit always stays between minLimit and maxLimit.
+ * <p>
+ * The current limit and its last changes are kept for monitoring, see {@link #getLimit()} and
+ * {@link #getLimitHistory()}.
+ */
+public class AdaptiveConcurrencyThrottler<T> implements Throttler<T> {
+
+    private static final int HISTORY_SIZE = 64;
+
+    private final LimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final Clock clock;
+    private final long originNanos;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private final ArrayDeque<LimitChange> history = new ArrayDeque<>(HISTORY_SIZE);
+    // One shot waiters in FIFO order, checked again whenever permits are given back
+    private final ArrayDeque<Consumer<ThrottleResult>> waiters = new ArrayDeque<>();
+
+    /**
+     * @param algorithm decides the next limit after each completion, not to be shared between throttlers
+     * @param initialLimit requests in flight allowed before any completion has been seen
+     * @param minLimit
+     * @param maxLimit
+     */
+    public AdaptiveConcurrencyThrottler(LimitAlgorithm algorithm, int initialLimit, int minLimit, int maxLimit) {
+        this(algorithm, initialLimit, minLimit, maxLimit, Clock.system());
+    }
+
+    public AdaptiveConcurrencyThrottler(LimitAlgorithm algorithm, int initialLimit, int minLimit, int maxLimit, Clock clock) {
+        if (algorithm == null || clock == null) {
+            throw new IllegalArgumentException("Algorithm And Clock Must Be Non Null");
+        }
+        if (minLimit <= 0) {
+            throw new IllegalArgumentException("minLimit must be greater than 0");
+        }
+        if (maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit");
+        }
+
+        this.algorithm = algorithm;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+    }
+
+    /**
+     * @return ThrottleResult
+     */
+    @Override
+    public synchronized ThrottleResult shouldProceed() {
+        return inFlight < (int) limit ? ThrottleResult.PROCEED : ThrottleResult.DO_NOT_PROCEED;
+    }
+
+    /**
+     * Subscriber is called once, in FIFO order with other waiters, as soon as a request can proceed. The permit is
+     * acquired for it before the call and has to be given back on completion like any other.
+     *
+     * @param subscriber
+     */
+    @Override
+    public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) {
+        if (subscriber == null) { throw new IllegalArgumentException("Subscriber Should be Non Null"); }
+        synchronized (this) { waiters.add(subscriber); }
+        checkWaiters();
+    }
+
+    /**
+     * @param permits requests to start
+     * @return true if they fit under the current limit, they must then be given back on completion
+     */
+    @Override
+    public synchronized boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        if (inFlight + permits > (int) limit) { return false; }
+
+        inFlight += permits;
+        return true;
+    }
+
+    /**
+     * Waits on the monitor, woken up whenever permits are given back or the limit changes.
+     *
+     * @param permits requests to start
+     * @param timeout
+     * @param unit
+     * @return true if the permits were acquired before the timeout
+     */
+    @Override
+    public synchronized boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        checkPermits(permits);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!tryAcquire(permits)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) { return false; }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * The requests completed normally.
+     *
+     * @param permits as acquired
+     * @param latency time the requests took
+     * @param unit
+     */
+    public void onSuccess(int permits, long latency, TimeUnit unit) {
+        if (latency < 0) { throw new IllegalArgumentException("latency must not be negative"); }
+        complete(permits, unit.toNanos(latency), false);
+    }
+
+    /**
+     * The requests failed in a way that points at overload (timeout, rejected by the backend), the limit backs off.
+     *
+     * @param permits as acquired
+     */
+    public void onDropped(int permits) {
+        complete(permits, -1, true);
+    }
+
+    /**
+     * The requests completed without saying anything about the backend's capacity (e.g. failed validation),
+     * the permits are given back and the limit is left alone.
+     *
+     * @param permits as acquired
+     */
+    public void onIgnored(int permits) {
+        synchronized (this) {
+            release(permits);
+            notifyAll();
+        }
+        checkWaiters();
+    }
+
+    /**
+     * @return requests currently allowed in flight
+     */
+    public synchronized int getLimit() { return (int) limit; }
+
+    public synchronized int getInFlight() { return inFlight; }
+
+    /**
+     * @return the most recent limit changes, oldest first
+     */
+    public synchronized List<LimitChange> getLimitHistory() {
+        return Collections.unmodifiableList(new ArrayList<>(history));
+    }
+
+    private void complete(int permits, long latencyNanos, boolean dropped) {
+        synchronized (this) {
+            // In flight count the request saw, including itself
+            final int load = inFlight;
+            release(permits);
+
+            final double previous = limit;
+            limit = Math.max(minLimit, Math.min(maxLimit, algorithm.update(previous, latencyNanos, load, dropped)));
+            if ((int) limit != (int) previous) {
+                if (history.size() == HISTORY_SIZE) { history.pollFirst(); }
+                history.addLast(new LimitChange(clock.nanoTime() - originNanos, (int) previous, (int) limit, latencyNanos, dropped));
+            }
+            notifyAll();
+        }
+        checkWaiters();
+    }
+
+    private void release(int permits) {
+        checkPermits(permits);
+        if (permits > inFlight) { throw new IllegalStateException("Released More Permits Than Acquired"); }
+        inFlight -= permits;
+    }
+
+    // Takes a slot for each waiter it releases, otherwise one free slot would release the whole queue.
+    // Subscribers are called outside the lock
+    private void checkWaiters() {
+        final List<Consumer<ThrottleResult>> released = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                inFlight++;
+                released.add(waiters.poll());
+            }
+        }
+
+        for (Consumer<ThrottleResult> waiter : released) {
+            try {
+                waiter.accept(ThrottleResult.PROCEED);
+            } catch (final Exception e) {
+                // The request never started, give its slot to the next waiter
+                onIgnored(1);
+                System.out.println("Exception Occured Notifying Subscriber" + e.getMessage());
+            }
+        }
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0 || permits > maxLimit) {
+            throw new IllegalArgumentException("permits must be between 1 and maxLimit");
+        }
+    }
+
+    /**
+     * Picks the next limit from one completed request. Called under the throttler's lock, so implementations can
+     * keep state without synchronizing, but an instance belongs to a single throttler.
+     */
+    public interface LimitAlgorithm {
+
+        /**
+         * @param limit current limit
+         * @param latencyNanos how long the request took, -1 if it was dropped
+         * @param inFlight requests in flight when it completed, including itself
+         * @param dropped true if the request failed because of overload
+         * @return the next limit, clamped to the bounds by the throttler
+         */
+        double update(double limit, long latencyNanos, int inFlight, boolean dropped);
+
+        /**
+         * Additive increase, multiplicative decrease. Grows by one per completion while the limit is in use, and is
+         * multiplied by backoffRatio when a request is dropped or slower than timeout, at most once per round of
+         * requests in flight.
+         */
+        static LimitAlgorithm aimd(double backoffRatio, long timeout, TimeUnit unit) {
+            return new AimdLimitAlgorithm(backoffRatio, unit.toNanos(timeout));
+        }
+
+        /**
+         * Vegas style gradient. Compares each latency with the latency without load: while they agree the limit grows
+         * by about its square root per round trip, as latency rises (requests queueing at the backend) the limit
+         * shrinks in proportion, by at most half at a time. Every probeInterval completions the limit drops to
+         * minLimit for a few requests to measure the latency without load again, then goes back to where it was.
+         *
+         * @param tolerance how much slower than without load a request may be before the limit shrinks, e.g. 1.5
+         * @param probeInterval completions between measurements of the latency without load
+         */
+        static LimitAlgorithm gradient(double tolerance, int probeInterval) {
+            return new GradientLimitAlgorithm(tolerance, probeInterval);
+        }
+    }
+
+    static class AimdLimitAlgorithm implements LimitAlgorithm {
+        private final double backoffRatio;
+        private final long timeoutNanos;
+        // Completions of requests that were already in flight at the last backoff
+        private int skipBackoffs;
+
+        AimdLimitAlgorithm(double backoffRatio, long timeoutNanos) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+            }
+            if (timeoutNanos <= 0) {
+                throw new IllegalArgumentException("timeout must be greater than 0");
+            }
+            this.backoffRatio = backoffRatio;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        public double update(double limit, long latencyNanos, int inFlight, boolean dropped) {
+            final boolean skip = skipBackoffs > 0;
+            if (skip) { skipBackoffs--; }
+
+            if (dropped || latencyNanos > timeoutNanos) {
+                // One overload shows up in every request in flight, back off once for all of them
+                if (skip) { return limit; }
+                skipBackoffs = inFlight - 1;
+                return limit * backoffRatio;
+            }
+            // A limit that is mostly unused proves nothing about capacity, so only grow one that is being hit
+            return inFlight * 2 >= limit ? limit + 1 : limit;
+        }
+    }
+
+    static class GradientLimitAlgorithm implements LimitAlgorithm {
+        private static final double SMOOTHING = 0.2;
+        private static final double MIN_GRADIENT = 0.5;
+        private static final int PROBE_SAMPLES = 16;
+
+        private final double tolerance;
+        private final int probeInterval;
+        private long noLoadLatencyNanos = Long.MAX_VALUE;
+        private int sinceProbe;
+
+        // Limit to go back to while a probe holds it at the minimum, 0 when not probing
+        private double probedLimit;
+        private int probeSamples;
+        private long probeLowestNanos;
+
+        GradientLimitAlgorithm(double tolerance, int probeInterval) {
+            if (tolerance < 1) {
+                throw new IllegalArgumentException("tolerance must be at least 1");
+            }
+            if (probeInterval <= 0) {
+                throw new IllegalArgumentException("probeInterval must be greater than 0");
+            }
+            this.tolerance = tolerance;
+            this.probeInterval = probeInterval;
+        }
+
+        @Override
+        public double update(double limit, long latencyNanos, int inFlight, boolean dropped) {
+            if (probedLimit > 0) { return probe(limit, latencyNanos, inFlight, dropped); }
+            if (dropped) { return step(limit, MIN_GRADIENT); }
+
+            noLoadLatencyNanos = Math.min(noLoadLatencyNanos, Math.max(1, latencyNanos));
+            // Under steady load every latency includes queueing, only less load can show what the backend does
+            // without it. Hold the limit at the minimum for a few requests and measure again
+            if (++sinceProbe >= probeInterval) {
+                probedLimit = limit;
+                probeSamples = 0;
+                probeLowestNanos = Long.MAX_VALUE;
+                return 0;
+            }
+            if (inFlight * 2 < limit) { return limit; }
+
+            return step(limit, Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * noLoadLatencyNanos / Math.max(1, latencyNanos))));
+        }
+
+        private double probe(double limit, long latencyNanos, int inFlight, boolean dropped) {
+            // Requests started before the probe still carry the old load
+            if (dropped || inFlight > limit) { return limit; }
+
+            probeLowestNanos = Math.min(probeLowestNanos, Math.max(1, latencyNanos));
+            if (++probeSamples < PROBE_SAMPLES) { return limit; }
+
+            noLoadLatencyNanos = probeLowestNanos;
+            sinceProbe = 0;
+            final double restored = probedLimit;
+            probedLimit = 0;
+            return restored;
+        }
+
+        // Square root of the limit is the queueing allowed at the backend, the probe for more capacity.
+        // Every request in flight reports, so each moves the limit a limit-th of the way: one step per round trip
+        private static double step(double limit, double gradient) {
+            final double target = limit * gradient + Math.sqrt(limit);
+            final double smoothing = SMOOTHING / Math.max(1, limit);
+            return limit * (1 - smoothing) + target * smoothing;
+        }
+    }
+
+    public static class LimitChange {
+        private final long nanos;
+        private final int previousLimit;
+        private final int limit;
+        private final long latencyNanos;
+        private final boolean dropped;
+
+        private LimitChange(long nanos, int previousLimit, int limit, long latencyNanos, boolean dropped) {
+            this.nanos = nanos;
+            this.previousLimit = previousLimit;
+            this.limit = limit;
+            this.latencyNanos = latencyNanos;
+            this.dropped = dropped;
+        }
+
+        /**
+         * @return when the limit changed, in nanos since the throttler was created
+         */
+        public long getNanos() { return nanos; }
+        public int getPreviousLimit() { return previousLimit; }
+        public int getLimit() { return limit; }
+        /**
+         * @return latency of the completion that caused the change, -1 if it was dropped
+         */
+        public long getLatencyNanos() { return latencyNanos; }
+        public boolean isDropped() { return dropped; }
+
+        @Override
+        public String toString() {
+            return previousLimit + " -> " + limit + " at " + nanos + "ns" + (dropped ? " (dropped)" : " (latency " + latencyNanos + "ns)");
+        }
+    }
+}
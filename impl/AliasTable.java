@@ -0,0 +1,385 @@
+package org.home.core.service;
+
+import org.home.core.ProbabilisticRandomGen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * Alias table for distributions with tens of millions of outcomes. Built in parallel from primitive arrays into one
+ * flat block of bytes off heap, which can be saved to a file and memory mapped back: startup is a map call, and
+ * every process mapping the same file shares one read only copy in the page cache.
+ * <p>
+ * Each column is a record of its threshold as an unsigned fixed point fraction, the alias's outcome and, unless the
+ * outcomes are the column indices, the column's own outcome: 6 to 12 bytes per outcome, where
+ * {@link ProbabilisticRandomGenImpl} takes 12 on the heap plus the boxed list it is built from.
+ * <p>
+ * The build splits the light columns (probability below average) into fixed pieces and gives each piece a run of
+ * heavy columns with about the same excess, pairs every piece on its own in the common fork join pool, then pairs
+ * the few columns left over at the piece borders. Pieces only depend on the number of outcomes, so the same weights
+ * always give the same table.
+ */
+public final class AliasTable implements ProbabilisticRandomGen {
+
+    public enum Precision {
+        // Threshold in 1/65536 steps, rounding moves up to 1/131072 of a column between an outcome and its alias.
+        // An outcome spread over many columns (a weight far above average) collects that error from each of them
+        FIXED_16(Short.BYTES),
+        // Threshold in 1/2^32 steps, as exact as ProbabilisticRandomGenImpl
+        FIXED_32(Integer.BYTES);
+
+        private final int bytes;
+
+        Precision(int bytes) { this.bytes = bytes; }
+    }
+
+    // "ALIS" read as a little endian int
+    private static final int MAGIC = 0x53494C41;
+    private static final int VERSION = 1;
+    // Magic, version, size, precision, identity outcomes flag, padding
+    private static final int HEADER = 16;
+    private static final int PIECE_SIZE = 1 << 16;
+
+    private final ByteBuffer table;
+    private final int size;
+    private final Precision precision;
+    private final boolean identityOutcomes;
+    private final int recordBytes;
+
+    // Only ever read with absolute gets, so threads can share the buffer
+    private AliasTable(ByteBuffer table) {
+        this.table = table;
+        this.size = table.getInt(8);
+        this.precision = Precision.values()[table.get(12)];
+        this.identityOutcomes = table.get(13) != 0;
+        this.recordBytes = recordBytes(precision, identityOutcomes);
+    }
+
+    /**
+     * Outcomes are the indices into weights.
+     *
+     * @param weights relative weights, do not need to sum to 1
+     * @param precision
+     */
+    public static AliasTable build(double[] weights, Precision precision) {
+        return build(null, weights, precision);
+    }
+
+    public static AliasTable build(List<NumAndProbability> weightedNums, Precision precision) {
+        if (weightedNums == null) { throw new NullPointerException("WeightedNums must be non null"); }
+        final int[] outcomes = new int[weightedNums.size()];
+        final double[] weights = new double[weightedNums.size()];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = weightedNums.get(i).getNumber();
+            weights[i] = weightedNums.get(i).getProbabilityOfSample();
+        }
+        return build(outcomes, weights, precision);
+    }
+
+    /**
+     * @param outcomes outcome of each weight, null for the indices
+     * @param weights relative weights, do not need to sum to 1
+     * @param precision
+     */
+    public static AliasTable build(int[] outcomes, double[] weights, Precision precision) {
+        if (weights == null || precision == null) { throw new NullPointerException("Weights And Precision must be non null"); }
+        if (weights.length == 0) { throw new IllegalArgumentException("Weights must be non empty"); }
+        if (outcomes != null && outcomes.length != weights.length) {
+            throw new IllegalArgumentException("Outcomes And Weights Must Have The Same Length");
+        }
+
+        final int n = weights.length;
+        final int recordBytes = recordBytes(precision, outcomes == null);
+        if (HEADER + (long) n * recordBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Table Of " + n + " Outcomes Does Not Fit In One Buffer");
+        }
+
+        final ByteBuffer table = ByteBuffer.allocateDirect(HEADER + n * recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+        table.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, n);
+        table.put(12, (byte) precision.ordinal()).put(13, (byte) (outcomes == null ? 1 : 0));
+        if (outcomes != null) {
+            IntStream.range(0, n).parallel().forEach(i -> table.putInt(HEADER + i * recordBytes + precision.bytes + Integer.BYTES, outcomes[i]));
+        }
+
+        new Builder(table, n, recordBytes, precision.bytes, outcomes).build(weights);
+        return new AliasTable(table);
+    }
+
+    /**
+     * Memory maps a table written by {@link #save(Path)} read only. Nothing is read up front, pages are loaded as
+     * samples touch them.
+     *
+     * @param file
+     * @throws IOException if the file cannot be read or is not an alias table
+     */
+    public static AliasTable load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long bytes = channel.size();
+            if (bytes < HEADER || bytes > Integer.MAX_VALUE) { throw new IOException("Not An Alias Table " + file); }
+
+            final ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes).order(ByteOrder.LITTLE_ENDIAN);
+            if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION || table.get(12) < 0
+                    || table.get(12) >= Precision.values().length || table.getInt(8) <= 0
+                    || HEADER + (long) table.getInt(8) * recordBytes(Precision.values()[table.get(12)], table.get(13) != 0) != bytes) {
+                throw new IOException("Not An Alias Table " + file);
+            }
+            return new AliasTable(table);
+        }
+    }
+
+    /**
+     * Writes the table next to file first and moves it in place, so a reader never maps a partial table.
+     *
+     * @param file
+     */
+    public void save(Path file) throws IOException {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            final ByteBuffer bytes = table.duplicate().clear();
+            while (bytes.hasRemaining()) { channel.write(bytes); }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public int nextFromSample() {
+        return sample(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @param random generator to draw with, for reproducible samples
+     */
+    public int nextFromSample(RandomGenerator random) {
+        return sample(random.nextLong());
+    }
+
+    @Override
+    public void nextFromSample(int[] dest, int off, int len) {
+        Objects.checkFromIndexSize(off, len, dest.length);
+        final RandomGenerator random = ThreadLocalRandom.current();
+        for (int i = off; i < off + len; i++) { dest[i] = sample(random.nextLong()); }
+    }
+
+    public int size() { return size; }
+
+    public Precision getPrecision() { return precision; }
+
+    /**
+     * One 64 bit draw: the high half picks the column, the low half is compared against its threshold.
+     */
+    private int sample(long bits) {
+        final int column = (int) (((bits >>> 32) * size) >>> 32);
+        final int record = HEADER + column * recordBytes;
+        final boolean keep = precision == Precision.FIXED_32
+                ? Integer.compareUnsigned((int) bits, table.getInt(record)) < 0
+                : ((int) bits >>> 16) < (table.getShort(record) & 0xFFFF);
+        if (!keep) { return table.getInt(record + precision.bytes); }
+        return identityOutcomes ? column : table.getInt(record + precision.bytes + Integer.BYTES);
+    }
+
+    /**
+     * @return probability of every outcome as encoded, by column index. Only for tables built without outcomes
+     */
+    double[] outcomeProbabilities() {
+        final double[] probabilities = new double[size];
+        final double scale = precision == Precision.FIXED_32 ? 0x1p32 : 0x1p16;
+        for (int column = 0; column < size; column++) {
+            final int record = HEADER + column * recordBytes;
+            final double keep = (precision == Precision.FIXED_32
+                    ? Integer.toUnsignedLong(table.getInt(record)) : table.getShort(record) & 0xFFFF) / scale;
+            probabilities[column] += keep / size;
+            probabilities[table.getInt(record + precision.bytes)] += (1 - keep) / size;
+        }
+        return probabilities;
+    }
+
+    private static int recordBytes(Precision precision, boolean identityOutcomes) {
+        return precision.bytes + Integer.BYTES + (identityOutcomes ? 0 : Integer.BYTES);
+    }
+
+    /**
+     * Vose's pairing over primitive arrays. Lights and heavies are stacks inside one index array, each piece works
+     * on its own slices of it, and a column's record is written as soon as its threshold is final.
+     */
+    private static final class Builder {
+        private final ByteBuffer table;
+        private final int n;
+        private final int recordBytes;
+        private final int thresholdBytes;
+        private final int[] outcomes;
+        private final int pieces;
+
+        // Scaled so the average column is 1, reduced as heavy columns give to light ones
+        private final double[] residual;
+        // Light column indices then heavy ones, each in index order
+        private final int[] order;
+
+        Builder(ByteBuffer table, int n, int recordBytes, int thresholdBytes, int[] outcomes) {
+            this.table = table;
+            this.n = n;
+            this.recordBytes = recordBytes;
+            this.thresholdBytes = thresholdBytes;
+            this.outcomes = outcomes;
+            this.pieces = (n + PIECE_SIZE - 1) / PIECE_SIZE;
+            this.residual = new double[n];
+            this.order = new int[n];
+        }
+
+        void build(double[] weights) {
+            // Summed per piece and then in order, so the total does not depend on the pool
+            final double[] pieceTotals = new double[pieces];
+            IntStream.range(0, pieces).parallel().forEach(k -> {
+                double total = 0;
+                for (int i = bound(n, k); i < bound(n, k + 1); i++) {
+                    if (!(weights[i] >= 0) || Double.isInfinite(weights[i])) {
+                        throw new IllegalArgumentException("weight must be finite and not negative");
+                    }
+                    total += weights[i];
+                }
+                pieceTotals[k] = total;
+            });
+            double total = 0;
+            for (double pieceTotal : pieceTotals) { total += pieceTotal; }
+            if (!(total > 0) || Double.isInfinite(total)) { throw new IllegalArgumentException("Weights Must Sum To A Finite Value Above 0"); }
+            final double scale = n / total;
+
+            final int[] lightsBefore = new int[pieces + 1];
+            IntStream.range(0, pieces).parallel().forEach(k -> {
+                int lights = 0;
+                for (int i = bound(n, k); i < bound(n, k + 1); i++) {
+                    residual[i] = weights[i] * scale;
+                    if (residual[i] < 1.0) { lights++; }
+                }
+                lightsBefore[k + 1] = lights;
+            });
+            for (int k = 0; k < pieces; k++) { lightsBefore[k + 1] += lightsBefore[k]; }
+            final int lights = lightsBefore[pieces];
+
+            IntStream.range(0, pieces).parallel().forEach(k -> {
+                int light = lightsBefore[k];
+                int heavy = lights + bound(n, k) - lightsBefore[k];
+                for (int i = bound(n, k); i < bound(n, k + 1); i++) {
+                    if (residual[i] < 1.0) { order[light++] = i; }
+                    else { order[heavy++] = i; }
+                }
+            });
+
+            final int[] heavyBounds = heavyBounds(lights);
+            final long[] leftovers = new long[pieces];
+            IntStream.range(0, pieces).parallel().forEach(k -> leftovers[k] = pair(order, bound(lights, k), bound(lights, k + 1),
+                    order, lights + heavyBounds[k], lights + heavyBounds[k + 1]));
+
+            pairLeftovers(lights, heavyBounds, leftovers);
+        }
+
+        /**
+         * Piece k gets the k-th equal slice of light columns and the heavy columns whose excess over 1 adds up to
+         * about the deficit of those lights, so pieces mostly pair off on their own.
+         */
+        private int[] heavyBounds(int lights) {
+            final int heavies = n - lights;
+
+            final double[] deficitBefore = new double[pieces + 1];
+            final double[] excessBefore = new double[pieces + 1];
+            IntStream.range(0, pieces).parallel().forEach(k -> {
+                double deficit = 0;
+                for (int i = bound(lights, k); i < bound(lights, k + 1); i++) { deficit += 1.0 - residual[order[i]]; }
+                deficitBefore[k + 1] = deficit;
+                double excess = 0;
+                for (int i = bound(heavies, k); i < bound(heavies, k + 1); i++) { excess += residual[order[lights + i]] - 1.0; }
+                excessBefore[k + 1] = excess;
+            });
+            for (int k = 0; k < pieces; k++) {
+                deficitBefore[k + 1] += deficitBefore[k];
+                excessBefore[k + 1] += excessBefore[k];
+            }
+
+            final int[] heavyBounds = new int[pieces + 1];
+            heavyBounds[pieces] = heavies;
+            IntStream.range(1, pieces).parallel().forEach(k -> {
+                final double target = deficitBefore[k];
+                // Last slice of heavies starting below the target, then walk it up to the target
+                int slice = 0;
+                while (slice < pieces - 1 && excessBefore[slice + 1] <= target) { slice++; }
+                double excess = excessBefore[slice];
+                int heavy = bound(heavies, slice);
+                while (heavy < bound(heavies, slice + 1) && excess + residual[order[lights + heavy]] - 1.0 <= target) {
+                    excess += residual[order[lights + heavy]] - 1.0;
+                    heavy++;
+                }
+                heavyBounds[k] = heavy;
+            });
+            return heavyBounds;
+        }
+
+        // Whatever the pieces could not pair among themselves, few columns around each border
+        private void pairLeftovers(int lights, int[] heavyBounds, long[] leftovers) {
+            int smallerSize = 0;
+            int largerSize = 0;
+            for (int k = 0; k < pieces; k++) {
+                smallerSize += (int) (leftovers[k] >>> 32) - bound(lights, k);
+                largerSize += (int) leftovers[k] - (lights + heavyBounds[k]);
+            }
+            final int[] smaller = new int[smallerSize];
+            final int[] larger = new int[largerSize];
+            smallerSize = 0;
+            largerSize = 0;
+            for (int k = 0; k < pieces; k++) {
+                for (int i = bound(lights, k); i < (int) (leftovers[k] >>> 32); i++) { smaller[smallerSize++] = order[i]; }
+                for (int i = lights + heavyBounds[k]; i < (int) leftovers[k]; i++) { larger[largerSize++] = order[i]; }
+            }
+
+            final long left = pair(smaller, 0, smallerSize, larger, 0, largerSize);
+            // Full columns, aliasing them to themselves makes the threshold irrelevant
+            for (int i = 0; i < (int) (left >>> 32); i++) { write(smaller[i], 1.0, smaller[i]); }
+            for (int i = 0; i < (int) left; i++) { write(larger[i], 1.0, larger[i]); }
+        }
+
+        /**
+         * @return tops of both stacks once one of them ran out, smaller's in the high half
+         */
+        private long pair(int[] smaller, int smallerBase, int smallerTop, int[] larger, int largerBase, int largerTop) {
+            while (smallerTop > smallerBase && largerTop > largerBase) {
+                final int small = smaller[--smallerTop];
+                final int large = larger[--largerTop];
+
+                // Small column is topped up by the large one, which is left with less
+                write(small, residual[small], large);
+                residual[large] = (residual[large] + residual[small]) - 1.0;
+
+                // Always fits, both stacks just gave up a slot
+                if (residual[large] < 1.0) { smaller[smallerTop++] = large; }
+                else { larger[largerTop++] = large; }
+            }
+            return ((long) smallerTop << 32) | largerTop;
+        }
+
+        private void write(int column, double probability, int alias) {
+            final int record = HEADER + column * recordBytes;
+            if (thresholdBytes == Integer.BYTES) {
+                table.putInt(record, (int) Math.min(0xFFFFFFFFL, Math.round(probability * 0x1p32)));
+            } else {
+                table.putShort(record, (short) Math.min(0xFFFF, Math.round(probability * 0x1p16)));
+            }
+            table.putInt(record + thresholdBytes, outcomes == null ? alias : outcomes[alias]);
+        }
+
+        // Start of the k-th of pieces equal slices of count
+        private int bound(int count, int k) {
+            return (int) ((long) count * k / pieces);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.home.core.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Buffers events for a batch consumer. A batch is cut when it reaches maxBatchSize or when its oldest event
+ * has waited longer than maxLingerMillis. Thread safe, the bus decides on which thread a cut batch is delivered.
+ * <p>
+ * A single threaded bus delivers what add, pollLingered and drain return itself. A bus delivering from several
+ * threads uses the queue methods instead, which line cut batches up in cut order, and {@link #deliverQueued()},
+ * which hands them to the consumer one at a time whichever threads call it.
+ */
+public class BatchingSubscriber<T> {
+
+    private final Consumer<List<T>> consumer;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final EventBusMetrics.SubscriberMetrics metrics;
+
+    private List<T> buffer;
+    private long oldestEventNanos;
+
+    // Cut batches waiting for deliverQueued, and whether a thread is already delivering them
+    private final ArrayDeque<List<T>> queued = new ArrayDeque<>();
+    private boolean delivering;
+
+    public BatchingSubscriber(Consumer<List<T>> consumer, int maxBatchSize, long maxLingerMillis) {
+        this(consumer, maxBatchSize, maxLingerMillis, null);
+    }
+
+    /**
+     * @param metrics records execution time per batch, null to skip
+     */
+    public BatchingSubscriber(Consumer<List<T>> consumer, int maxBatchSize, long maxLingerMillis, EventBusMetrics.SubscriberMetrics metrics) {
+        if (consumer == null) { throw new IllegalArgumentException("Subscriber Must Be Non Null"); }
+        if (maxBatchSize <= 0) { throw new IllegalArgumentException("maxBatchSize must be greater than 0"); }
+        if (maxLingerMillis <= 0) { throw new IllegalArgumentException("maxLingerMillis must be greater than 0"); }
+
+        this.consumer = consumer;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLingerMillis * 1_000_000L;
+        this.metrics = metrics;
+        this.buffer = new ArrayList<>(maxBatchSize);
+    }
+
+    /**
+     * @param event
+     * @return the full batch to deliver, or null if the batch is not complete yet
+     */
+    public synchronized List<T> add(T event) {
+        if (buffer.isEmpty()) { oldestEventNanos = System.nanoTime(); }
+        buffer.add(event);
+        return buffer.size() >= maxBatchSize ? cut() : null;
+    }
+
+    /**
+     * @return the partial batch if its oldest event has lingered long enough, otherwise null
+     */
+    public synchronized List<T> pollLingered() {
+        if (buffer.isEmpty() || System.nanoTime() - oldestEventNanos < maxLingerNanos) { return null; }
+        return cut();
+    }
+
+    /**
+     * @return whatever is buffered, or null if nothing is
+     */
+    public synchronized List<T> drain() {
+        return buffer.isEmpty() ? null : cut();
+    }
+
+    /**
+     * Adds the event and queues the batch if that completes it.
+     *
+     * @param event
+     * @return true if a batch is queued for {@link #deliverQueued()}
+     */
+    public synchronized boolean queue(T event) {
+        return enqueue(add(event));
+    }
+
+    /**
+     * @return true if the partial batch had lingered long enough and is now queued
+     */
+    public synchronized boolean queueLingered() {
+        return enqueue(pollLingered());
+    }
+
+    /**
+     * @return true if anything was buffered and is now queued
+     */
+    public synchronized boolean queueRemaining() {
+        return enqueue(drain());
+    }
+
+    /**
+     * Delivers queued batches in order until none are left. Returns straight away if another thread is already
+     * delivering, that thread picks up whatever was queued in the meantime.
+     */
+    public void deliverQueued() {
+        synchronized (this) {
+            if (delivering) { return; }
+            delivering = true;
+        }
+        while (true) {
+            final List<T> batch;
+            synchronized (this) {
+                batch = queued.poll();
+                if (batch == null) {
+                    delivering = false;
+                    return;
+                }
+            }
+            deliver(batch);
+        }
+    }
+
+    public void deliver(List<T> batch) {
+        if (batch == null) { return; }
+        final long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            consumer.accept(batch);
+        } catch (Exception e) {
+            if (metrics != null) { metrics.recordError(); }
+            System.out.println("Error notifying batch subscriber" + e.getMessage());
+        } finally {
+            if (metrics != null) { metrics.recordExecution(System.nanoTime() - start); }
+        }
+    }
+
+    public long getMaxLingerMillis() { return maxLingerNanos / 1_000_000L; }
+
+    private boolean enqueue(List<T> batch) {
+        if (batch == null) { return false; }
+        queued.add(batch);
+        return true;
+    }
+
+    private List<T> cut() {
+        final List<T> batch = buffer;
+        buffer = new ArrayList<>(maxBatchSize);
+        return batch;
+    }
+}
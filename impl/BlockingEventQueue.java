@@ -0,0 +1,31 @@
+package org.home.core.service;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * {@link EventQueue} backed by a {@link BlockingQueue}. Allocates a node per event but needs no tuning.
+ */
+public class BlockingEventQueue<T> implements EventQueue<T> {
+
+    private final BlockingQueue<T> queue;
+
+    public BlockingEventQueue(BlockingQueue<T> queue) {
+        if (queue == null) { throw new IllegalArgumentException("Queue Must Be Non Null"); }
+        this.queue = queue;
+    }
+
+    @Override
+    public boolean offer(T event) { return queue.offer(event); }
+
+    @Override
+    public void put(T event) throws InterruptedException { queue.put(event); }
+
+    @Override
+    public T take() throws InterruptedException { return queue.take(); }
+
+    @Override
+    public T poll() { return queue.poll(); }
+
+    @Override
+    public int size() { return queue.size(); }
+}
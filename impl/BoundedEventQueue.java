@@ -0,0 +1,62 @@
+package org.home.core.service;
+
+import org.home.core.service.MultiThreadedEventBus.OverflowPolicy;
+import org.home.core.service.MultiThreadedEventBus.PublishResult;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed capacity {@link EventQueue} that applies an {@link OverflowPolicy} when full, so a slow subscriber
+ * sheds load instead of growing the heap. Coalescing is handled by {@link CoalescingEventQueue}.
+ */
+public class BoundedEventQueue<T> implements EventQueue<T> {
+
+    private final BlockingQueue<T> queue;
+    private final OverflowPolicy overflowPolicy;
+
+    public BoundedEventQueue(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) { throw new IllegalArgumentException("capacity must be greater than 0"); }
+        if (overflowPolicy == null || overflowPolicy == OverflowPolicy.COALESCE) {
+            throw new IllegalArgumentException("overflowPolicy must be one of BLOCK, FAIL, DROP_OLDEST, DROP_NEWEST");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public boolean offer(T event) { return queue.offer(event); }
+
+    @Override
+    public void put(T event) throws InterruptedException { queue.put(event); }
+
+    @Override
+    public T take() throws InterruptedException { return queue.take(); }
+
+    @Override
+    public T poll() { return queue.poll(); }
+
+    @Override
+    public int size() { return queue.size(); }
+
+    @Override
+    public PublishResult publish(T event, boolean mayBlock) throws InterruptedException {
+        if (queue.offer(event)) { return PublishResult.ACCEPTED; }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                if (!mayBlock) { return PublishResult.REJECTED; }
+                queue.put(event);
+                return PublishResult.ACCEPTED;
+            case DROP_NEWEST:
+                return PublishResult.DROPPED_NEWEST;
+            case DROP_OLDEST:
+                // Dispatch thread may free a slot between attempts, only report a drop if we actually evicted
+                boolean dropped = false;
+                while (!queue.offer(event)) { dropped |= queue.poll() != null; }
+                return dropped ? PublishResult.DROPPED_OLDEST : PublishResult.ACCEPTED;
+            default:
+                return PublishResult.REJECTED;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.PermitCoordinator;
+import org.home.core.Throttler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * One node's view of a cluster wide limit. Permits are leased in blocks of leaseSize from a shared
+ * {@link PermitCoordinator} and spent locally with a single CAS, the coordinator is only called when the local
+ * lease is spent or expired. Unused permits go back to the coordinator on renewal and on {@link #quit()}.
+ * An expired lease is only given back when the node next renews, and if that release fails its permits are lost to
+ * the cluster until the coordinator's window that granted them ends.
+ * <p>
+ * When the coordinator cannot be reached the throttler fails closed and does not ask again for a backoff that
+ * starts at a millisecond and doubles per failure, up to the time to live of the last granted lease.
+ * <p>
+ * The global rate is approximate: permits leased but not yet spent by one node are unavailable to the others
+ * until they are returned, so smaller leases trade more coordinator calls for a fairer split.
+ */
+public class ClusterThrottler<T> implements Throttler<T> {
+
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final PermitCoordinator coordinator;
+    private final int leaseSize;
+    private final Clock clock;
+
+    private volatile LocalLease lease;
+    private ScheduledExecutorService scheduler;
+    // Guarded by this
+    private int failures;
+    private long lastTimeToLiveNanos;
+
+    public ClusterThrottler(PermitCoordinator coordinator, int leaseSize) {
+        this(coordinator, leaseSize, Clock.system());
+    }
+
+    /**
+     * @param coordinator shared budget
+     * @param leaseSize permits asked for per coordinator call
+     * @param clock
+     */
+    public ClusterThrottler(PermitCoordinator coordinator, int leaseSize, Clock clock) {
+        if (coordinator == null || clock == null) {
+            throw new IllegalArgumentException("Coordinator And Clock Must Be Non Null");
+        }
+        if (leaseSize <= 0) {
+            throw new IllegalArgumentException("leaseSize must be greater than 0");
+        }
+
+        this.coordinator = coordinator;
+        this.leaseSize = leaseSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Renews the lease if the local one is spent, so it can cost a coordinator call.
+     *
+     * @return ThrottleResult
+     */
+    @Override
+    public ThrottleResult shouldProceed() {
+        final LocalLease current = lease;
+        if (current != null && current.isValid(clock.nanoTime()) && current.remaining.get() > 0) {
+            return ThrottleResult.PROCEED;
+        }
+        return renew(1).remaining.get() > 0 ? ThrottleResult.PROCEED : ThrottleResult.DO_NOT_PROCEED;
+    }
+
+    /**
+     * Subscriber is called once, when a permit can be leased. Retries when the current lease expires.
+     *
+     * @param subscriber
+     */
+    @Override
+    public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) {
+        if (subscriber == null) { throw new IllegalArgumentException("Subscriber Should be Non Null"); }
+
+        if (shouldProceed() == ThrottleResult.DO_NOT_PROCEED) {
+            scheduler().schedule(() -> notifyWhenCanProceed(subscriber), nanosUntilRenewal(), TimeUnit.NANOSECONDS);
+            return;
+        }
+        try {
+            subscriber.accept(ThrottleResult.PROCEED);
+        } catch (final Exception e) {
+            System.out.println("Exception Occured Notifying Subscriber" + e.getMessage());
+        }
+    }
+
+    /**
+     * Hot path is local, the coordinator is only called when the lease cannot cover the permits.
+     *
+     * @param permits cost of the request
+     * @return true if the permits were acquired
+     */
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) { throw new IllegalArgumentException("permits must be greater than 0"); }
+
+        final LocalLease current = lease;
+        if (current != null && current.isValid(clock.nanoTime()) && current.take(permits)) { return true; }
+        return renew(permits).take(permits);
+    }
+
+    /**
+     * Parks until the current lease expires between attempts, a new one can only be granted after that.
+     *
+     * @param permits cost of the request
+     * @param timeout
+     * @param unit
+     * @return true if the permits were acquired before the timeout
+     */
+    @Override
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!tryAcquire(permits)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) { return false; }
+            if (Thread.interrupted()) { throw new InterruptedException(); }
+            LockSupport.parkNanos(this, Math.min(remaining, nanosUntilRenewal()));
+        }
+        return true;
+    }
+
+    /**
+     * Returns the lease if it can still cover the permits, otherwise gives back what is left of it and leases
+     * a new block. The new lease may hold fewer permits than asked for, then the cluster budget is spent and the
+     * coordinator is left alone until the lease expires.
+     */
+    private synchronized LocalLease renew(int permits) {
+        final long now = clock.nanoTime();
+        final LocalLease current = lease;
+        if (current != null && current.isValid(now) && (current.remaining.get() >= permits || current.budgetSpent)) {
+            return current;
+        }
+
+        if (current != null) { returnUnused(current); }
+        try {
+            final int wanted = Math.max(leaseSize, permits);
+            final PermitCoordinator.Lease granted = coordinator.lease(wanted);
+            lease = new LocalLease(granted, now + granted.getTimeToLiveNanos(), granted.getPermits() < wanted);
+            lastTimeToLiveNanos = granted.getTimeToLiveNanos();
+            failures = 0;
+        } catch (final RuntimeException e) {
+            // Fail closed, a limit nobody can check is not worth breaking. The empty lease lasts for the backoff,
+            // so callers wait on it instead of calling a coordinator that is down
+            System.out.println("Exception Occured Leasing Permits" + e.getMessage());
+            lease = new LocalLease(new PermitCoordinator.Lease(-1, 0, 0), now + failureBackoffNanos(), true);
+            failures++;
+        }
+        return lease;
+    }
+
+    // Doubles per consecutive failure, capped by the last lease's time to live or a second if none was granted
+    private long failureBackoffNanos() {
+        final long cap = Math.max(MIN_BACKOFF_NANOS, lastTimeToLiveNanos > 0 ? lastTimeToLiveNanos : MAX_BACKOFF_NANOS);
+        return Math.min(cap, MIN_BACKOFF_NANOS << Math.min(failures, 30));
+    }
+
+    private void returnUnused(LocalLease local) {
+        final int unused = local.remaining.getAndSet(0);
+        if (unused <= 0) { return; }
+        try {
+            coordinator.release(local.lease, unused);
+        } catch (final RuntimeException e) {
+            System.out.println("Exception Occured Releasing Permits" + e.getMessage());
+        }
+    }
+
+    private long nanosUntilRenewal() {
+        final LocalLease current = lease;
+        return current == null ? 1 : Math.max(1, current.expiresAtNanos - clock.nanoTime());
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "cluster-throttler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    // Hands unused permits back to the cluster
+    public synchronized void quit() {
+        if (lease != null) { returnUnused(lease); }
+        if (scheduler != null) { scheduler.shutdownNow(); }
+    }
+
+    private static class LocalLease {
+        private final PermitCoordinator.Lease lease;
+        private final AtomicInteger remaining;
+        private final long expiresAtNanos;
+        private final boolean budgetSpent;
+
+        LocalLease(PermitCoordinator.Lease lease, long expiresAtNanos, boolean budgetSpent) {
+            this.lease = lease;
+            this.remaining = new AtomicInteger(lease.getPermits());
+            this.expiresAtNanos = expiresAtNanos;
+            this.budgetSpent = budgetSpent;
+        }
+
+        boolean isValid(long now) { return now < expiresAtNanos; }
+
+        boolean take(int permits) {
+            while (true) {
+                final int current = remaining.get();
+                if (current < permits) { return false; }
+                if (remaining.compareAndSet(current, current - permits)) { return true; }
+            }
+        }
+    }
+}
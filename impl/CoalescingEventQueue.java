@@ -0,0 +1,104 @@
+package org.home.core.service;
+
+import org.home.core.service.MultiThreadedEventBus.PublishResult;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * {@link EventQueue} holding at most one pending event per key (event class unless a key function is given).
+ * Publishing an event whose key is already pending overwrites it in place, keeping its queue position, and the
+ * dispatch thread takes each pending value exactly once. Subscriber work is bounded by distinct keys per drain,
+ * not by events published.
+ * <p>
+ * Keys wait in FIFO order while values live in a map. A key is only queued by the publisher that created its
+ * pending entry, so a key is never queued twice. Capacity bounds the number of distinct keys pending at once.
+ */
+public class CoalescingEventQueue<T> implements EventQueue<T> {
+
+    private final Function<? super T, ?> keyExtractor;
+    private final ConcurrentHashMap<Object, T> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<Object> keys = new LinkedBlockingQueue<>();
+
+    // Null when unbounded
+    private final Semaphore capacity;
+
+    public CoalescingEventQueue(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity max distinct keys pending, 0 for unbounded
+     * @param keyExtractor key to coalesce on, event class when null. Must not return null
+     */
+    public CoalescingEventQueue(int capacity, Function<? super T, ?> keyExtractor) {
+        if (capacity < 0) { throw new IllegalArgumentException("capacity must not be negative"); }
+        this.capacity = capacity > 0 ? new Semaphore(capacity) : null;
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public boolean offer(T event) {
+        try {
+            return publish(event, false) != PublishResult.REJECTED;
+        } catch (final InterruptedException e) {
+            // Can not happen without blocking
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void put(T event) throws InterruptedException { publish(event, true); }
+
+    @Override
+    public PublishResult publish(T event, boolean mayBlock) throws InterruptedException {
+        if (event == null) { throw new IllegalArgumentException("Event Must Be Non Null"); }
+        final Object key = keyExtractor != null ? keyExtractor.apply(event) : event.getClass();
+        if (key == null) { throw new IllegalArgumentException("Conflation Key Must Be Non Null"); }
+
+        while (true) {
+            // Overwrite in place if the key is still pending, the dispatch thread will pick up this value instead
+            if (pending.replace(key, event) != null) { return PublishResult.COALESCED; }
+
+            if (capacity != null) {
+                if (mayBlock) { capacity.acquire(); }
+                else if (!capacity.tryAcquire()) { return PublishResult.REJECTED; }
+            }
+
+            if (pending.putIfAbsent(key, event) == null) {
+                keys.add(key);
+                return PublishResult.ACCEPTED;
+            }
+
+            // Lost the race to another publisher creating the entry, coalesce into theirs
+            if (capacity != null) { capacity.release(); }
+        }
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        while (true) {
+            final Object key = keys.take();
+            final T event = pending.remove(key);
+            if (capacity != null) { capacity.release(); }
+            if (event != null) { return event; }
+        }
+    }
+
+    @Override
+    public T poll() {
+        for (Object key = keys.poll(); key != null; key = keys.poll()) {
+            final T event = pending.remove(key);
+            if (capacity != null) { capacity.release(); }
+            if (event != null) { return event; }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() { return pending.size(); }
+}
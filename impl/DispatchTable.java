@@ -0,0 +1,85 @@
+package org.home.core.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Subscriptions by class with a per concrete event class cache of every subscriber that applies to it,
+ * including those registered for a superclass or interface. Publishing is one map lookup returning a flat array.
+ * <p>
+ * Registrations are copy on write and the cache is thrown away on every change, so the class hierarchy is only
+ * walked the first time a concrete class is published after subscriptions change.
+ */
+public class DispatchTable<S> {
+
+    private final IntFunction<S[]> arrayFactory;
+    private final S[] empty;
+
+    // Both replaced, never mutated once published. Registrations are always written before the cache is reset
+    private volatile Map<Class<?>, List<S>> registrations = Collections.emptyMap();
+    private volatile ConcurrentHashMap<Class<?>, S[]> cache = new ConcurrentHashMap<>();
+
+    public DispatchTable(IntFunction<S[]> arrayFactory) {
+        this.arrayFactory = arrayFactory;
+        this.empty = arrayFactory.apply(0);
+    }
+
+    public synchronized void add(Class<?> clazz, S subscriber) {
+        final Map<Class<?>, List<S>> updated = new HashMap<>(registrations);
+        final List<S> subscribers = new ArrayList<>(updated.getOrDefault(clazz, Collections.emptyList()));
+        subscribers.add(subscriber);
+        updated.put(clazz, Collections.unmodifiableList(subscribers));
+
+        registrations = updated;
+        cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param eventClass concrete class of the published event
+     * @return subscribers for the class and all its supertypes, never null. Callers must not modify it
+     */
+    public S[] get(Class<?> eventClass) {
+        // Read the cache before registrations, so a resolve can never use registrations older than the cache
+        final ConcurrentHashMap<Class<?>, S[]> current = cache;
+        final S[] subscribers = current.get(eventClass);
+        if (subscribers != null) { return subscribers; }
+        return current.computeIfAbsent(eventClass, this::resolve);
+    }
+
+    public boolean isEmpty() { return registrations.isEmpty(); }
+
+    public Map<Class<?>, List<S>> getRegistrations() { return registrations; }
+
+    // Breadth first over superclasses and interfaces, so the most specific subscriptions come first
+    private S[] resolve(Class<?> eventClass) {
+        final Map<Class<?>, List<S>> current = registrations;
+        if (current.isEmpty()) { return empty; }
+
+        final List<S> resolved = new ArrayList<>();
+        final Set<Class<?>> visited = new HashSet<>();
+        final Deque<Class<?>> toVisit = new ArrayDeque<>();
+        toVisit.add(eventClass);
+
+        while (!toVisit.isEmpty()) {
+            final Class<?> clazz = toVisit.poll();
+            if (!visited.add(clazz)) { continue; }
+
+            final List<S> subscribers = current.get(clazz);
+            if (subscribers != null) { resolved.addAll(subscribers); }
+
+            if (clazz.getSuperclass() != null) { toVisit.add(clazz.getSuperclass()); }
+            toVisit.addAll(Arrays.asList(clazz.getInterfaces()));
+        }
+        return resolved.isEmpty() ? empty : resolved.toArray(arrayFactory.apply(resolved.size()));
+    }
+}
@@ -0,0 +1,220 @@
+package org.home.core.service;
+
+import org.home.core.ProbabilisticRandomGen;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Weighted sampler whose weights can change while it is in use. Weights live in a Fenwick tree (prefix sums), so
+ * updateWeight, add and remove are O(log n) and a sample is an O(log n) descent, against an O(n) alias rebuild.
+ * Weights do not need to sum to 1, each number is picked with probability weight / total.
+ * <p>
+ * Sampling never blocks on its fast path: it reads optimistically and only retries under the read lock if a
+ * write happened meanwhile (StampedLock validation), so writers do not copy anything for readers.
+ */
+public final class DynamicWeightedRandomGen implements ProbabilisticRandomGen {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Slots are 1 based as the tree is. Guarded by lock
+    private int[] numbers = new int[INITIAL_CAPACITY + 1];
+    private double[] weights = new double[INITIAL_CAPACITY + 1];
+    private double[] tree = new double[INITIAL_CAPACITY + 1];
+    private double total;
+    private int highestSlot;
+    private final Map<Integer, Integer> slotOf = new HashMap<>();
+    // Removed slots, reused before growing
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    // Delta updates drift in floating point, the tree is rebuilt from the exact weights every capacity updates
+    private int updatesSinceRebuild;
+
+    public DynamicWeightedRandomGen() { }
+
+    public DynamicWeightedRandomGen(final List<NumAndProbability> weightedNums) {
+        if (weightedNums == null) { throw new NullPointerException("WeightedNums must be non null"); }
+        for (NumAndProbability weightedNum : weightedNums) {
+            add(weightedNum.getNumber(), weightedNum.getProbabilityOfSample());
+        }
+    }
+
+    /**
+     * @param number new outcome
+     * @param weight relative weight, 0 keeps the number but never samples it
+     * @throws IllegalArgumentException if the number is already present
+     */
+    public void add(final int number, final double weight) {
+        checkWeight(weight);
+        final long stamp = lock.writeLock();
+        try {
+            if (slotOf.containsKey(number)) { throw new IllegalArgumentException("Number Already Present " + number); }
+
+            final int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot();
+            slotOf.put(number, slot);
+            numbers[slot] = number;
+            setWeight(slot, weight);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param number existing outcome
+     * @param weight relative weight
+     * @throws IllegalArgumentException if the number is not present
+     */
+    public void updateWeight(final int number, final double weight) {
+        checkWeight(weight);
+        final long stamp = lock.writeLock();
+        try {
+            final Integer slot = slotOf.get(number);
+            if (slot == null) { throw new IllegalArgumentException("Number Not Present " + number); }
+            setWeight(slot, weight);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return true if the number was present
+     */
+    public boolean remove(final int number) {
+        final long stamp = lock.writeLock();
+        try {
+            final Integer slot = slotOf.remove(number);
+            if (slot == null) { return false; }
+
+            setWeight(slot, 0);
+            if (freeCount == freeSlots.length) { freeSlots = Arrays.copyOf(freeSlots, freeCount * 2); }
+            freeSlots[freeCount++] = slot;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public double getWeight(final int number) {
+        final long stamp = lock.readLock();
+        try {
+            final Integer slot = slotOf.get(number);
+            return slot == null ? 0 : weights[slot];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return slotOf.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if every weight is 0
+     */
+    @Override
+    public int nextFromSample() {
+        final ThreadLocalRandom rng = ThreadLocalRandom.current();
+
+        while (true) {
+            final long optimistic = lock.tryOptimisticRead();
+            if (optimistic != 0) {
+                final int[] numbers = this.numbers;
+                final int slot = find(rng.nextDouble());
+                final int number = slot > 0 && slot < numbers.length ? numbers[slot] : 0;
+                // Anything read during a write is thrown away, slot and number may be garbage then
+                if (slot > 0 && lock.validate(optimistic)) { return number; }
+            }
+
+            // A write got in the way, or nothing to sample: settle it under the read lock
+            final long stamp = lock.readLock();
+            try {
+                if (total <= 0) { throw new IllegalStateException("No Weights To Sample"); }
+                final int slot = find(rng.nextDouble());
+                if (slot > 0) { return numbers[slot]; }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Descends the tree for the first slot whose prefix sum exceeds uniform * total. Reads fields into locals and
+     * bounds checks every index, so it is safe to run against a concurrent write.
+     *
+     * @return slot, 0 if rounding landed past the last weight or nothing can be sampled
+     */
+    private int find(final double uniform) {
+        final double[] tree = this.tree;
+        final double[] weights = this.weights;
+        final double total = this.total;
+        final int capacity = tree.length - 1;
+        if (total <= 0) { return 0; }
+
+        double remaining = uniform * total;
+        int position = 0;
+        for (int step = Integer.highestOneBit(capacity); step > 0; step >>= 1) {
+            final int next = position + step;
+            if (next <= capacity && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        final int slot = position + 1;
+        return slot <= capacity && slot < weights.length && weights[slot] > 0 ? slot : 0;
+    }
+
+    // Guarded by the write lock
+    private void setWeight(final int slot, final double weight) {
+        final double delta = weight - weights[slot];
+        weights[slot] = weight;
+
+        if (++updatesSinceRebuild >= tree.length) {
+            rebuild(tree.length);
+            return;
+        }
+        for (int i = slot; i < tree.length; i += i & -i) { tree[i] += delta; }
+        total += delta;
+    }
+
+    private int nextSlot() {
+        if (highestSlot + 1 == tree.length) {
+            final int capacity = (tree.length - 1) * 2;
+            numbers = Arrays.copyOf(numbers, capacity + 1);
+            weights = Arrays.copyOf(weights, capacity + 1);
+            rebuild(capacity + 1);
+        }
+        return ++highestSlot;
+    }
+
+    // O(n) build from the exact weights, each node adds itself to its parent once
+    private void rebuild(final int length) {
+        final double[] rebuilt = new double[length];
+        double sum = 0;
+        for (int i = 1; i < length; i++) {
+            rebuilt[i] += weights[i];
+            sum += weights[i];
+            final int parent = i + (i & -i);
+            if (parent < length) { rebuilt[parent] += rebuilt[i]; }
+        }
+        tree = rebuilt;
+        total = sum;
+        updatesSinceRebuild = 0;
+    }
+
+    private static void checkWeight(final double weight) {
+        if (!(weight >= 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("weight must be finite and not negative");
+        }
+    }
+}
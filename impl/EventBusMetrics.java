@@ -0,0 +1,110 @@
+package org.home.core.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters for an event bus: publish count and rate, queue depth, dispatch to delivery latency and per subscriber
+ * execution time and error counts. Recording only touches adders and histograms, reading goes through
+ * {@link #snapshot()} so the cost of aggregation is paid by whoever is looking.
+ */
+public class EventBusMetrics {
+
+    private final LongAdder published = new LongAdder();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final List<SubscriberMetrics> subscribers = new CopyOnWriteArrayList<>();
+    private final IntSupplier queueDepth;
+
+    // Publish rate is reported over the interval since the previous snapshot
+    private long lastSnapshotNanos = System.nanoTime();
+    private long lastSnapshotPublished;
+
+    public EventBusMetrics(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth != null ? queueDepth : () -> 0;
+    }
+
+    public void recordPublish() { published.increment(); }
+
+    /**
+     * @param dispatchNanos {@link System#nanoTime()} when the bus handed the event over for this subscriber
+     */
+    public void recordDelivery(long dispatchNanos, long startNanos) { deliveryLatency.record(startNanos - dispatchNanos); }
+
+    public SubscriberMetrics registerSubscriber(Class<?> clazz, Object subscriber) {
+        final SubscriberMetrics metrics = new SubscriberMetrics(clazz.getName() + "/" + subscriber);
+        subscribers.add(metrics);
+        return metrics;
+    }
+
+    public synchronized Snapshot snapshot() {
+        final long now = System.nanoTime();
+        final long publishedCount = published.sum();
+        final double elapsedSeconds = (now - lastSnapshotNanos) / 1_000_000_000.0;
+        final double publishRate = elapsedSeconds > 0 ? (publishedCount - lastSnapshotPublished) / elapsedSeconds : 0;
+        lastSnapshotNanos = now;
+        lastSnapshotPublished = publishedCount;
+
+        final List<SubscriberSnapshot> subscriberSnapshots = new ArrayList<>(subscribers.size());
+        for (SubscriberMetrics metrics : subscribers) { subscriberSnapshots.add(metrics.snapshot()); }
+
+        return new Snapshot(publishedCount, publishRate, queueDepth.getAsInt(), deliveryLatency.snapshot(),
+                Collections.unmodifiableList(subscriberSnapshots));
+    }
+
+    public static class SubscriberMetrics {
+        private final String name;
+        private final LatencyHistogram executionTime = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        private SubscriberMetrics(String name) { this.name = name; }
+
+        public void recordExecution(long nanos) { executionTime.record(nanos); }
+
+        public void recordError() { errors.increment(); }
+
+        private SubscriberSnapshot snapshot() { return new SubscriberSnapshot(name, executionTime.snapshot(), errors.sum()); }
+    }
+
+    public static class Snapshot {
+        private final long publishedCount;
+        private final double publishRatePerSecond;
+        private final int queueDepth;
+        private final LatencyHistogram.Snapshot deliveryLatency;
+        private final List<SubscriberSnapshot> subscribers;
+
+        private Snapshot(long publishedCount, double publishRatePerSecond, int queueDepth,
+                         LatencyHistogram.Snapshot deliveryLatency, List<SubscriberSnapshot> subscribers) {
+            this.publishedCount = publishedCount;
+            this.publishRatePerSecond = publishRatePerSecond;
+            this.queueDepth = queueDepth;
+            this.deliveryLatency = deliveryLatency;
+            this.subscribers = subscribers;
+        }
+
+        public long getPublishedCount() { return publishedCount; }
+        public double getPublishRatePerSecond() { return publishRatePerSecond; }
+        public int getQueueDepth() { return queueDepth; }
+        public LatencyHistogram.Snapshot getDeliveryLatency() { return deliveryLatency; }
+        public List<SubscriberSnapshot> getSubscribers() { return subscribers; }
+    }
+
+    public static class SubscriberSnapshot {
+        private final String name;
+        private final LatencyHistogram.Snapshot executionTime;
+        private final long errorCount;
+
+        private SubscriberSnapshot(String name, LatencyHistogram.Snapshot executionTime, long errorCount) {
+            this.name = name;
+            this.executionTime = executionTime;
+            this.errorCount = errorCount;
+        }
+
+        public String getName() { return name; }
+        public LatencyHistogram.Snapshot getExecutionTime() { return executionTime; }
+        public long getErrorCount() { return errorCount; }
+    }
+}
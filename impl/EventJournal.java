@@ -0,0 +1,333 @@
+package org.home.core.service;
+
+import org.home.core.EventSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Append only log of events in memory mapped segment files. An event's offset is its byte position in the log, so
+ * a reader seeks straight to it and replays sequentially from there. Reads hand the serializer a view onto the
+ * mapped file, no bytes are copied.
+ * <p>
+ * Each record is a 4 byte header (payload length + 1) followed by the payload. The header is written last, so a
+ * record is either whole or not there. Segments roll when the next record does not fit, and old segments are
+ * deleted once the log is over retentionBytes or they were sealed more than retentionMillis ago.
+ * Survives a process crash as the OS keeps the mapped pages, call {@link #flush()} to survive a power loss too.
+ * <p>
+ * Appends take a lock held by writers only, just long enough to copy the record into the mapped page. Readers never
+ * take it, they follow the volatile end offset and park when caught up, and an append unparks them only if one is
+ * actually waiting.
+ */
+public class EventJournal<T> implements AutoCloseable {
+
+    private static final int HEADER = Integer.BYTES;
+    // Header of a record that did not fit, the rest of the segment is skipped
+    private static final int ROLL = -1;
+    private static final String SUFFIX = ".segment";
+
+    private final Path directory;
+    private final EventSerializer<T> serializer;
+    private final int segmentBytes;
+    private final long retentionBytes;
+    private final long retentionMillis;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Guarded by appendLock
+    private Segment active;
+    private int writePosition;
+    // When the oldest sealed segment gets too old, appends check it so retention does not wait for a roll
+    private long nextExpiryMillis = Long.MAX_VALUE;
+    private volatile boolean closed;
+
+    // Everything below is fully written, readers never go past it
+    private volatile long endOffset;
+    // Readers parked in awaitAppend
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Opens the journal in the directory, picking up where a previous journal left off if there is one.
+     *
+     * @param directory
+     * @param serializer
+     * @param segmentBytes size of each segment file, the largest record has to fit in one
+     * @param retentionBytes log size to trim down to, checked when a segment rolls, Long.MAX_VALUE to keep everything
+     * @param retentionMillis age to delete sealed segments at, checked on append, so a journal nothing is appended to
+     *                        keeps its segments until the next append, Long.MAX_VALUE to keep them
+     */
+    public EventJournal(Path directory, EventSerializer<T> serializer, int segmentBytes, long retentionBytes,
+                        long retentionMillis) throws IOException {
+        if (directory == null || serializer == null) {
+            throw new IllegalArgumentException("Directory And Serializer Must Be Non Null");
+        }
+        if (segmentBytes <= HEADER) {
+            throw new IllegalArgumentException("segmentBytes must be greater than " + HEADER);
+        }
+        if (retentionBytes <= 0 || retentionMillis <= 0) {
+            throw new IllegalArgumentException("retentionBytes and retentionMillis must be greater than 0");
+        }
+
+        this.directory = Files.createDirectories(directory);
+        this.serializer = serializer;
+        this.segmentBytes = segmentBytes;
+        this.retentionBytes = retentionBytes;
+        this.retentionMillis = retentionMillis;
+        recover();
+    }
+
+    /**
+     * @param event
+     * @return offset of the event, to replay from
+     */
+    public long append(T event) {
+        if (event == null) { throw new IllegalArgumentException("Event Must Be Non Null"); }
+
+        final int length = serializer.sizeOf(event);
+        if (length < 0 || length > segmentBytes - HEADER) {
+            throw new IllegalArgumentException("Event Of " + length + " Bytes Does Not Fit In A Segment");
+        }
+
+        final long offset;
+        appendLock.lock();
+        try {
+            if (closed) { throw new IllegalStateException("Journal Closed"); }
+            if (nextExpiryMillis != Long.MAX_VALUE && System.currentTimeMillis() > nextExpiryMillis) { applyRetention(); }
+            if (writePosition + HEADER + length > active.size) { roll(); }
+
+            final int position = writePosition;
+            final ByteBuffer buffer = active.writer;
+            buffer.limit(position + HEADER + length).position(position + HEADER);
+            serializer.write(event, buffer);
+            if (buffer.position() != position + HEADER + length) {
+                throw new IllegalStateException("Serializer Wrote " + (buffer.position() - position - HEADER) + " Bytes, Expected " + length);
+            }
+            buffer.putInt(position, length + 1);
+
+            writePosition = position + HEADER + length;
+            offset = active.base + position;
+            endOffset = active.base + writePosition;
+        } finally {
+            appendLock.unlock();
+        }
+        // Readers register before checking endOffset, so one that missed this append is in the set
+        if (!waiters.isEmpty()) { waiters.forEach(LockSupport::unpark); }
+        return offset;
+    }
+
+    /**
+     * Reads events in order from offset. Offsets older than the retained log start at the oldest event left.
+     *
+     * @param offset where to start, as returned by append or a previous read
+     * @param maxEvents
+     * @param consumer gets each event with the offset right after it, which is where to resume from
+     * @return offset to resume from
+     */
+    public long read(long offset, int maxEvents, ObjLongConsumer<? super T> consumer) {
+        long position = Math.max(offset, startOffset());
+        Segment segment = null;
+        ByteBuffer view = null;
+
+        for (int read = 0; read < maxEvents && position < endOffset; ) {
+            if (segment == null || position < segment.base || position >= segment.base + segment.size) {
+                final Map.Entry<Long, Segment> entry = segments.floorEntry(position);
+                // Trimmed by retention while reading, carry on from what is left
+                if (entry == null) { position = startOffset(); continue; }
+                segment = entry.getValue();
+                view = segment.buffer.duplicate();
+            }
+
+            final int index = (int) (position - segment.base);
+            final int header = index + HEADER <= segment.size ? view.getInt(index) : ROLL;
+            if (header == ROLL) {
+                position = segment.base + segment.size;
+                continue;
+            }
+
+            final int length = header - 1;
+            view.limit(index + HEADER + length).position(index + HEADER);
+            final T event = serializer.read(view);
+            view.clear();
+
+            position += HEADER + length;
+            consumer.accept(event, position);
+            read++;
+        }
+        return position;
+    }
+
+    /**
+     * Waits until something is appended past offset, the journal is closed or the timeout passes.
+     *
+     * @return true if there is something to read at offset
+     */
+    public boolean awaitAppend(long offset, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final Thread reader = Thread.currentThread();
+        waiters.add(reader);
+        try {
+            while (endOffset <= offset && !closed) {
+                if (Thread.interrupted()) { throw new InterruptedException(); }
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) { return false; }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            waiters.remove(reader);
+        }
+        return endOffset > offset;
+    }
+
+    // Oldest offset still retained
+    public long startOffset() {
+        final Map.Entry<Long, Segment> first = segments.firstEntry();
+        return first != null ? first.getKey() : 0;
+    }
+
+    // Offset the next event will be appended at, or just before if it has to roll
+    public long endOffset() {
+        return endOffset;
+    }
+
+    // Forces written events to disk
+    public void flush() {
+        appendLock.lock();
+        try {
+            if (!closed) { active.buffer.force(); }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) { return; }
+            active.buffer.force();
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        waiters.forEach(LockSupport::unpark);
+    }
+
+    // Guarded by appendLock
+    private void roll() {
+        if (writePosition + HEADER <= active.size) { active.writer.clear().putInt(writePosition, ROLL); }
+        active.sealedMillis = System.currentTimeMillis();
+
+        try {
+            active = map(active.base + active.size, segmentBytes);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writePosition = 0;
+        endOffset = active.base;
+        applyRetention();
+    }
+
+    // Oldest first, the active segment is never deleted
+    private void applyRetention() {
+        long totalBytes = 0;
+        for (Segment segment : segments.values()) { totalBytes += segment.size; }
+
+        final long now = System.currentTimeMillis();
+        final Iterator<Segment> oldestFirst = segments.values().iterator();
+        while (oldestFirst.hasNext()) {
+            final Segment segment = oldestFirst.next();
+            if (segment == active || (totalBytes <= retentionBytes && now - segment.sealedMillis <= retentionMillis)) {
+                nextExpiryMillis = segment == active || segment.sealedMillis > Long.MAX_VALUE - retentionMillis
+                        ? Long.MAX_VALUE : segment.sealedMillis + retentionMillis;
+                return;
+            }
+
+            oldestFirst.remove();
+            totalBytes -= segment.size;
+            try {
+                // Readers still holding the mapping keep reading it, the space is freed once they let go
+                Files.deleteIfExists(segment.path);
+            } catch (final IOException e) {
+                System.out.println("Error Deleting Journal Segment " + segment.path + e.getMessage());
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                final long base;
+                try {
+                    base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                } catch (final NumberFormatException e) {
+                    System.out.println("Skipping Journal File Not Named By Offset " + file);
+                    continue;
+                }
+                final Segment segment = map(base, (int) Files.size(file));
+                segment.sealedMillis = Files.getLastModifiedTime(file).toMillis();
+            }
+        }
+
+        if (segments.isEmpty()) {
+            active = map(0, segmentBytes);
+        } else {
+            active = segments.lastEntry().getValue();
+            // Records end at the first header that was never written
+            int position = 0;
+            while (position + HEADER <= active.size) {
+                final int header = active.buffer.getInt(position);
+                if (header == 0) { break; }
+                position = header == ROLL ? active.size : position + HEADER + header - 1;
+            }
+            writePosition = position;
+        }
+        endOffset = active.base + writePosition;
+        applyRetention();
+    }
+
+    private Segment map(long base, int size) throws IOException {
+        final Path path = directory.resolve(String.format("%020d%s", base, SUFFIX));
+        // The mapping stays valid once the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final Segment segment = new Segment(base, size, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segments.put(base, segment);
+            return segment;
+        }
+    }
+
+    private static class Segment {
+        private final long base;
+        private final int size;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        // Only used by the appending thread
+        private final ByteBuffer writer;
+        private volatile long sealedMillis = Long.MAX_VALUE;
+
+        Segment(long base, int size, Path path, MappedByteBuffer buffer) {
+            this.base = base;
+            this.size = size;
+            this.path = path;
+            this.buffer = buffer;
+            this.writer = buffer.duplicate();
+        }
+    }
+}
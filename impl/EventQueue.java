@@ -0,0 +1,41 @@
+package org.home.core.service;
+
+import org.home.core.service.MultiThreadedEventBus.PublishResult;
+
+/**
+ * Queue stage between publishers and the dispatch loop of {@link MultiThreadedEventBus}.
+ * Multiple producers, single consumer (the dispatch thread).
+ */
+public interface EventQueue<T> {
+
+    /**
+     * @return true if the event was accepted, false if the queue is full
+     */
+    boolean offer(T event);
+
+    void put(T event) throws InterruptedException;
+
+    T take() throws InterruptedException;
+
+    /**
+     * @return next event, or null if the queue is empty
+     */
+    T poll();
+
+    int size();
+
+    /**
+     * Adds the event applying the queue's overflow policy. Unbounded and ring buffer queues simply block or reject.
+     *
+     * @param event
+     * @param mayBlock false to never wait for space
+     * @return PublishResult
+     */
+    default PublishResult publish(T event, boolean mayBlock) throws InterruptedException {
+        if (mayBlock) {
+            put(event);
+            return PublishResult.ACCEPTED;
+        }
+        return offer(event) ? PublishResult.ACCEPTED : PublishResult.REJECTED;
+    }
+}
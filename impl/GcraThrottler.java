@@ -0,0 +1,154 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Generic cell rate algorithm. The whole state is one long, the theoretical arrival time (TAT): when the next
+ * request would be due if requests arrived exactly at the allowed rate. A request is allowed if taking it does not
+ * push the TAT further than burst emission intervals ahead of now, and each decision is a single CAS.
+ * <p>
+ * Equivalent to a token bucket of size burst refilled at the rate, without storing tokens or refill times.
+ */
+public class GcraThrottler<T> implements Throttler<T> {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int burst;
+    private final Clock clock;
+    private final long originNanos;
+
+    private final AtomicLong theoreticalArrivalNanos = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param rate requests allowed per period on average
+     * @param periodMillis
+     * @param burst requests allowed back to back
+     */
+    public GcraThrottler(int rate, long periodMillis, int burst) {
+        this(rate, periodMillis, burst, Clock.system());
+    }
+
+    public GcraThrottler(int rate, long periodMillis, int burst, Clock clock) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be greater than 0");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("periodMillis must be greater than 0");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be greater than 0");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock Must Be Non Null");
+        }
+
+        this.emissionIntervalNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(periodMillis) / rate);
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.burst = burst;
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+    }
+
+    /**
+     * @return ThrottleResult
+     */
+    @Override
+    public ThrottleResult shouldProceed() {
+        return nanosUntilAvailable(1, clock.nanoTime() - originNanos) <= 0 ? ThrottleResult.PROCEED : ThrottleResult.DO_NOT_PROCEED;
+    }
+
+    /**
+     * Subscriber is called once, when a request can proceed. Wakes up exactly when the TAT allows it, no polling.
+     *
+     * @param subscriber
+     */
+    @Override
+    public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) {
+        if (subscriber == null) { throw new IllegalArgumentException("Subscriber Should be Non Null"); }
+
+        final long waitNanos = nanosUntilAvailable(1, clock.nanoTime() - originNanos);
+        if (waitNanos > 0) {
+            scheduler().schedule(() -> notifyWhenCanProceed(subscriber), waitNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        try {
+            subscriber.accept(ThrottleResult.PROCEED);
+        } catch (final Exception e) {
+            System.out.println("Exception Occured Notifying Subscriber" + e.getMessage());
+        }
+    }
+
+    /**
+     * @param permits cost of the request
+     * @return true if the permits were acquired
+     */
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        final long now = clock.nanoTime() - originNanos;
+
+        while (true) {
+            final long tat = theoreticalArrivalNanos.get();
+            final long newTat = Math.max(tat, now) + emissionIntervalNanos * permits;
+            if (newTat - now > burstToleranceNanos) { return false; }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) { return true; }
+        }
+    }
+
+    /**
+     * Parks for exactly as long as the TAT says the permits need, then tries again.
+     *
+     * @param permits cost of the request
+     * @param timeout
+     * @param unit
+     * @return true if the permits were acquired before the timeout
+     */
+    @Override
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        checkPermits(permits);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!tryAcquire(permits)) {
+            final long waitNanos = nanosUntilAvailable(permits, clock.nanoTime() - originNanos);
+            if (System.nanoTime() + waitNanos > deadline) { return false; }
+            if (Thread.interrupted()) { throw new InterruptedException(); }
+            LockSupport.parkNanos(this, Math.max(1, waitNanos));
+        }
+        return true;
+    }
+
+    private long nanosUntilAvailable(int permits, long now) {
+        final long newTat = Math.max(theoreticalArrivalNanos.get(), now) + emissionIntervalNanos * permits;
+        return newTat - now - burstToleranceNanos;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0 || permits > burst) {
+            throw new IllegalArgumentException("permits must be between 1 and burst");
+        }
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "gcra-throttler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    public synchronized void quit() {
+        if (scheduler != null) { scheduler.shutdownNow(); }
+    }
+}
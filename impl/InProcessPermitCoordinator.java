@@ -0,0 +1,87 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.PermitCoordinator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PermitCoordinator} for nodes in the same JVM, mostly to stand in for a remote one in tests.
+ * The global budget is maxRequests per fixed window. A lease lasts leaseTimeMillis or until the window ends,
+ * whichever comes first, and is identified by its window so late releases from an old window are ignored.
+ */
+public class InProcessPermitCoordinator implements PermitCoordinator {
+
+    private final int maxRequests;
+    private final long windowNanos;
+    private final long leaseNanos;
+    private final Clock clock;
+    private final long originNanos;
+
+    // Guarded by this
+    private long currentWindow;
+    private int granted;
+
+    public InProcessPermitCoordinator(int maxRequests, long windowTimeMillis, long leaseTimeMillis) {
+        this(maxRequests, windowTimeMillis, leaseTimeMillis, Clock.system());
+    }
+
+    public InProcessPermitCoordinator(int maxRequests, long windowTimeMillis, long leaseTimeMillis, Clock clock) {
+        if (maxRequests <= 0) {
+            throw new IllegalArgumentException("maxRequests must be greater than 0");
+        }
+        if (windowTimeMillis <= 0) {
+            throw new IllegalArgumentException("windowTimeMillis must be greater than 0");
+        }
+        if (leaseTimeMillis <= 0) {
+            throw new IllegalArgumentException("leaseTimeMillis must be greater than 0");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock Must Be Non Null");
+        }
+
+        this.maxRequests = maxRequests;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowTimeMillis);
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseTimeMillis);
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+    }
+
+    @Override
+    public synchronized Lease lease(int permits) {
+        if (permits <= 0) { throw new IllegalArgumentException("permits must be greater than 0"); }
+
+        final long now = clock.nanoTime() - originNanos;
+        roll(now);
+        final int grant = Math.min(permits, maxRequests - granted);
+        granted += grant;
+
+        final long untilWindowEnds = windowNanos - now % windowNanos;
+        return new Lease(currentWindow, grant, Math.min(leaseNanos, untilWindowEnds));
+    }
+
+    @Override
+    public synchronized void release(Lease lease, int unusedPermits) {
+        if (lease == null) { throw new IllegalArgumentException("Lease Must Be Non Null"); }
+
+        roll(clock.nanoTime() - originNanos);
+        // A new window started with a full budget already, returning on top of it would exceed the limit
+        if (lease.getId() != currentWindow) { return; }
+        granted -= Math.max(0, Math.min(unusedPermits, lease.getPermits()));
+    }
+
+    /**
+     * @return permits left to lease in the current window
+     */
+    public synchronized int available() {
+        roll(clock.nanoTime() - originNanos);
+        return maxRequests - granted;
+    }
+
+    private void roll(long now) {
+        final long window = now / windowNanos;
+        if (window == currentWindow) { return; }
+        currentWindow = window;
+        granted = 0;
+    }
+}
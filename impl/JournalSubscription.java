@@ -0,0 +1,79 @@
+package org.home.core.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Subscriber that reads the bus's journal instead of the live queue: it replays from an offset, then keeps
+ * following new events. It runs on its own thread, so a long catch up never holds up live subscribers.
+ * Events are delivered in journal order and the subscriber's position is exposed, so it can be stored
+ * and used to resume after a restart.
+ */
+public class JournalSubscription<T> implements AutoCloseable {
+
+    private static final int READ_BATCH = 1024;
+    private static final long IDLE_WAIT_MILLIS = 100;
+
+    private final EventJournal<T> journal;
+    private final Class<? extends T> clazz;
+    private final Consumer<T> subscriber;
+    private final Thread reader;
+
+    // Offset after the last event handed to the subscriber
+    private volatile long offset;
+    private volatile boolean running = true;
+
+    JournalSubscription(EventJournal<T> journal, Class<? extends T> clazz, Consumer<T> subscriber, long fromOffset) {
+        this.journal = journal;
+        this.clazz = clazz;
+        this.subscriber = subscriber;
+        this.offset = fromOffset;
+        this.reader = new Thread(this::follow, "event-bus-journal-" + clazz.getSimpleName());
+        reader.setDaemon(true);
+    }
+
+    void start() {
+        reader.start();
+    }
+
+    /**
+     * @return offset to resume from, everything before it has been delivered
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        reader.interrupt();
+    }
+
+    private void follow() {
+        while (running) {
+            final long from = offset;
+            final long next = journal.read(from, READ_BATCH, this::deliver);
+            // Only events skipped by retention or roll markers moved it, nothing was delivered
+            offset = next;
+            if (next != from) { continue; }
+
+            try {
+                journal.awaitAppend(next, IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void deliver(T event, long nextOffset) {
+        if (running && clazz.isInstance(event)) {
+            try {
+                subscriber.accept(event);
+            } catch (final Exception e) {
+                System.out.println("Error notifying journal subscriber for event" + e.getMessage());
+            }
+        }
+        offset = nextOffset;
+    }
+}
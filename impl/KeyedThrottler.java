@@ -0,0 +1,212 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler.ThrottleResult;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rate limits many keys (customers, API keys) independently, each to maxRequests per window, with memory bounded
+ * by a hard cap on tracked keys and no threads per key.
+ * <p>
+ * Keys are striped over a fixed number of access ordered maps, each behind its own lock, so unrelated keys rarely
+ * contend. Per key state is a small approximate sliding window (current and previous window counts). A full stripe
+ * evicts its least recently used key, and one shared timer sweeps keys idle for longer than idleTimeoutMillis.
+ * An evicted key starts again with an empty window, so eviction fails open. Stripes therefore hold at least
+ * MIN_KEYS_PER_STRIPE keys, a small maxKeys gets fewer stripes rather than stripes so small that a couple of active
+ * keys sharing one keep evicting each other.
+ */
+public class KeyedThrottler<K> {
+
+    private static final int MIN_KEYS_PER_STRIPE = 16;
+
+    private final int maxRequests;
+    private final long windowNanos;
+    private final long idleTimeoutNanos;
+    private final Clock clock;
+    private final long originNanos;
+
+    private final Stripe<K>[] stripes;
+    private final ScheduledExecutorService evictionTimer;
+
+    /**
+     * @param maxRequests per key per window
+     * @param windowTimeMillis
+     * @param maxKeys hard cap on keys tracked at once
+     * @param idleTimeoutMillis keys not seen for this long are dropped
+     */
+    public KeyedThrottler(int maxRequests, long windowTimeMillis, int maxKeys, long idleTimeoutMillis) {
+        this(maxRequests, windowTimeMillis, maxKeys, idleTimeoutMillis, Clock.system());
+    }
+
+    @SuppressWarnings("unchecked")
+    public KeyedThrottler(int maxRequests, long windowTimeMillis, int maxKeys, long idleTimeoutMillis, Clock clock) {
+        if (maxRequests <= 0) {
+            throw new IllegalArgumentException("maxRequests must be greater than 0");
+        }
+        if (windowTimeMillis <= 0) {
+            throw new IllegalArgumentException("windowTimeMillis must be greater than 0");
+        }
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be greater than 0");
+        }
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis must be greater than 0");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock Must Be Non Null");
+        }
+
+        this.maxRequests = maxRequests;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowTimeMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+
+        // Power of two so picking a stripe is a mask, never so many stripes that one holds fewer than the minimum
+        final int stripeCount = Math.min(Integer.highestOneBit(Math.max(1, maxKeys / MIN_KEYS_PER_STRIPE)),
+                Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);
+        // The first maxKeys % stripeCount stripes take one extra key, so the caps add up to exactly maxKeys
+        this.stripes = (Stripe<K>[]) new Stripe<?>[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(maxKeys / stripeCount + (i < maxKeys % stripeCount ? 1 : 0));
+        }
+
+        this.evictionTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "keyed-throttler-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long sweepMillis = Math.max(1, idleTimeoutMillis / 2);
+        evictionTimer.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean tryAcquire(K key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * @param key
+     * @param permits cost of the request
+     * @return true if the permits fit in the key's window and were recorded
+     */
+    public boolean tryAcquire(K key, int permits) {
+        if (key == null) { throw new IllegalArgumentException("Key Must Be Non Null"); }
+        if (permits <= 0 || permits > maxRequests) {
+            throw new IllegalArgumentException("permits must be between 1 and maxRequests");
+        }
+
+        final long now = clock.nanoTime() - originNanos;
+        final Stripe<K> stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            final Window window = stripe.windows.computeIfAbsent(key, _ -> new Window());
+            window.lastAccessNanos = now;
+            window.roll(now / windowNanos);
+            if (window.estimate(now, windowNanos) + permits > maxRequests) { return false; }
+
+            window.current += permits;
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public ThrottleResult shouldProceed(K key) {
+        if (key == null) { throw new IllegalArgumentException("Key Must Be Non Null"); }
+
+        final long now = clock.nanoTime() - originNanos;
+        final Stripe<K> stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            final Window window = stripe.windows.get(key);
+            if (window == null) { return ThrottleResult.PROCEED; }
+            window.roll(now / windowNanos);
+            return window.estimate(now, windowNanos) < maxRequests ? ThrottleResult.PROCEED : ThrottleResult.DO_NOT_PROCEED;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of keys currently tracked
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<K> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.windows.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<K> stripeFor(K key) {
+        final int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    // Maps are in access order, so the sweep can stop at the first key that is not idle
+    private void evictIdle() {
+        final long now = clock.nanoTime() - originNanos;
+        for (Stripe<K> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                final Iterator<Window> eldestFirst = stripe.windows.values().iterator();
+                while (eldestFirst.hasNext() && now - eldestFirst.next().lastAccessNanos > idleTimeoutNanos) {
+                    eldestFirst.remove();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public void quit() {
+        evictionTimer.shutdownNow();
+    }
+
+    private static class Stripe<K> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, Window> windows;
+
+        Stripe(int maxKeys) {
+            this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Window> eldest) { return size() > maxKeys; }
+            };
+        }
+    }
+
+    /**
+     * Approximate sliding window: the previous window's count weighted by how much of it still overlaps.
+     * Guarded by the stripe lock.
+     */
+    private static class Window {
+        private long epoch;
+        private int current;
+        private int previous;
+        private long lastAccessNanos;
+
+        void roll(long nowEpoch) {
+            if (nowEpoch == epoch) { return; }
+            previous = nowEpoch == epoch + 1 ? current : 0;
+            current = 0;
+            epoch = nowEpoch;
+        }
+
+        double estimate(long nanos, long windowNanos) {
+            final double previousOverlap = 1.0 - (double) (nanos % windowNanos) / windowNanos;
+            return previous * previousOverlap + current;
+        }
+    }
+}
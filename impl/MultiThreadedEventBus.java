@@ -1,43 +1,148 @@
 package org.home.core.service;
 
 import org.home.core.EventBus;
+import org.home.core.WaitStrategy;
 
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 public class MultiThreadedEventBus <T> implements EventBus<T> {
 
-    private final ConcurrentHashMap<Class <? extends T>, List<FilteredEventSubscriber<T>>> subscriberMap = new ConcurrentHashMap<>();
+    // Subscribers for a class also receive events of its subclasses, resolved once per concrete class and cached
+    @SuppressWarnings("unchecked")
+    private final DispatchTable<FilteredEventSubscriber<T>> subscriberMap = new DispatchTable<>(FilteredEventSubscriber[]::new);
+    @SuppressWarnings("unchecked")
+    private final DispatchTable<BatchingSubscriber<T>> batchSubscriberMap = new DispatchTable<>(BatchingSubscriber[]::new);
     private final ExecutorService consumerThreadPool;
-    private final BlockingQueue<Event> queue;
 
-    private final ConcurrentHashMap<Class<? extends T>, Event<T>> mostRecentEvent = new ConcurrentHashMap<>();
+    // Created on first batch subscriber, flushes batches that have lingered long enough
+    private ScheduledExecutorService batchFlusher;
+
+    // One queue per dispatch lane. Unsharded bus has a single lane
+    private final EventQueue<T>[] lanes;
+    private final Function<? super T, ?> partitionKey;
+    private final ExecutorService laneThreadPool;
+    private final boolean deliverInline;
+    private volatile boolean running = true;
+
+    // Per subscriber concurrency limit in virtual thread mode, 0 when unlimited
+    private final int maxConcurrencyPerSubscriber;
+
+    // Null unless enabled on the builder
+    private final EventBusMetrics metrics;
+
+    // Null unless enabled on the builder. Every published event is appended before it is queued
+    private final EventJournal<T> journal;
+    private final List<JournalSubscription<T>> journalSubscriptions = new CopyOnWriteArrayList<>();
 
     public MultiThreadedEventBus(int threadPoolSize) {
-        this.consumerThreadPool = Executors.newFixedThreadPool(threadPoolSize);
-        this.queue = new LinkedBlockingDeque<>();
+        this(MultiThreadedEventBus.<T>builder().threadPoolSize(threadPoolSize));
+    }
+
+    /**
+     * Ring buffer dispatch mode. Publishers claim preallocated slots without locks and do not allocate.
+     * When the ring is full publishers wait using the wait strategy, as does the dispatch thread when it is empty.
+     * Subscriber calls are handed to the pool, see {@link Builder#inlineDelivery()} to call them on the dispatch thread.
+     *
+     * @param threadPoolSize
+     * @param ringBufferSize must be a power of 2
+     * @param waitStrategy
+     */
+    public MultiThreadedEventBus(int threadPoolSize, int ringBufferSize, WaitStrategy waitStrategy) {
+        this(MultiThreadedEventBus.<T>builder().threadPoolSize(threadPoolSize).ringBuffer(ringBufferSize, waitStrategy));
+    }
+
+    @SuppressWarnings("unchecked")
+    private MultiThreadedEventBus(Builder<T> builder) {
+        final boolean sharded = builder.laneCount > 0;
+        final int laneCount = sharded ? builder.laneCount : 1;
+
+        this.lanes = (EventQueue<T>[]) new EventQueue<?>[laneCount];
+        for (int i = 0; i < laneCount; i++) { lanes[i] = newQueue(builder); }
+
+        // A conflation key has to land on the same lane every time, otherwise each lane would hold its own pending value
+        this.partitionKey = builder.partitionKey != null ? builder.partitionKey : builder.conflationKey;
+        this.deliverInline = builder.inlineDelivery;
+        this.maxConcurrencyPerSubscriber = builder.maxConcurrencyPerSubscriber;
+        this.metrics = builder.metrics ? new EventBusMetrics(this::queueDepth) : null;
+        this.journal = builder.journal;
+
+        if (builder.virtualThreads) {
+            // Every subscriber call gets its own virtual thread
+            this.consumerThreadPool = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            this.consumerThreadPool = builder.overflowPolicy == null
+                    ? Executors.newFixedThreadPool(builder.threadPoolSize)
+                    // Bound the hand off to subscribers too, otherwise the pool queue grows instead of the event queue.
+                    // Once full the dispatch thread runs the subscriber itself, which backs up into the event queue
+                    : new ThreadPoolExecutor(builder.threadPoolSize, builder.threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(builder.capacity), new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        // Dispatch loops stay on dedicated platform threads, apart from the subscribers, so shutdown can stop them
+        this.laneThreadPool = Executors.newFixedThreadPool(laneCount, Thread.ofPlatform().name("event-bus-dispatch-", 0).factory());
         start();
     }
 
+    private static <T> EventQueue<T> newQueue(Builder<T> builder) {
+        if (builder.ringBufferSize > 0) { return new RingBuffer<>(builder.ringBufferSize, builder.waitStrategy); }
+        if (builder.isCoalescing()) {
+            return new CoalescingEventQueue<>(builder.capacity, builder.conflationKey);
+        }
+        if (builder.overflowPolicy != null) { return new BoundedEventQueue<>(builder.capacity, builder.overflowPolicy); }
+        return new BlockingEventQueue<>(new LinkedBlockingDeque<>());
+    }
+
+    public static <T> Builder<T> builder() { return new Builder<>(); }
+
     /**
      * @param event
+     * @throws IllegalStateException if the queue is full and the overflow policy is {@link OverflowPolicy#FAIL},
+     *                               or if the caller is interrupted while waiting for space
      */
     @Override
     public void publishEvent(T event) {
+        if (publish(event) == PublishResult.REJECTED) {
+            throw new IllegalStateException("Event Queue Full");
+        }
+    }
+
+    /**
+     * Publishes applying the overflow policy, blocking only under {@link OverflowPolicy#BLOCK}.
+     *
+     * @param event
+     * @return PublishResult
+     * @throws IllegalStateException if the caller is interrupted while waiting for space, the interrupt stays set
+     */
+    public PublishResult publish(T event) {
+        return publish(event, true);
+    }
+
+    /**
+     * Publishes without ever blocking the caller.
+     *
+     * @param event
+     * @return true if the event was accepted
+     */
+    public boolean tryPublish(T event) {
+        return publish(event, false).isAccepted();
+    }
+
+    private PublishResult publish(T event, boolean mayBlock) {
         if (event == null) throw new IllegalArgumentException("Event Must Be Non Null");
-        Event<T> eventObj = new Event<>(event);
 
-        // Add latest event
-        // Depending on the requirements we can clean up the allowed types and type checking
-        mostRecentEvent.put((Class<? extends T>) event.getClass(), eventObj);
+        if (metrics != null) { metrics.recordPublish(); }
+        // Journal is the record of what was published, including events the overflow policy goes on to drop
+        if (journal != null) { journal.append(event); }
 
         try {
-            queue.put(eventObj);
+            return laneFor(event).publish(event, mayBlock);
         } catch (final InterruptedException e) {
+            // Not a full queue, so do not report it as one
             Thread.currentThread().interrupt();
-            System.out.println("Error Occured Adding Event to Queue: " + e.getMessage());
+            throw new IllegalStateException("Interrupted While Publishing", e);
         }
     }
 
@@ -50,10 +155,8 @@ public class MultiThreadedEventBus <T> implements EventBus<T> {
         if (clazz == null || subscriber == null) {
             throw new IllegalArgumentException("Class and Subscriber Must Be Non Null");
         }
-        // Using CopyOnWrite Array List as most likely reads much larger than writes. Alternative is to use synchronized writes to ArrayList
-        // Can also use CopyOnWriteArraySet as middle ground option. It's dependent on requirements of system and trade off to have
-        subscriberMap.computeIfAbsent(clazz, _ -> new CopyOnWriteArrayList<>())
-                .add(new FilteredEventSubscriber<>(subscriber, event -> true));
+        // Copy on write as most likely reads much larger than writes. Each change drops the cached dispatch arrays
+        subscriberMap.add(clazz, newSubscriber(clazz, subscriber, event -> true));
     }
 
     /**
@@ -66,56 +169,371 @@ public class MultiThreadedEventBus <T> implements EventBus<T> {
         if (clazz == null || subscriber == null || filter == null) {
             throw new IllegalArgumentException("Inputs Must Be All Non Null");
         }
-        subscriberMap.computeIfAbsent(clazz, _ -> new CopyOnWriteArrayList<>())
-                .add(new FilteredEventSubscriber<>(subscriber, filter));
+        subscriberMap.add(clazz, newSubscriber(clazz, subscriber, filter));
+    }
+
+    /**
+     * Replays the journal from fromOffset and then follows it. Delivery is in publish order on a thread of the
+     * subscription's own, independent of the live subscribers.
+     *
+     * @param clazz
+     * @param subscriber
+     * @param fromOffset offset from {@link EventJournal#append}, {@link JournalSubscription#getOffset()}, or 0 for
+     *                   everything retained
+     * @return the subscription, to read its offset or close it
+     * @throws IllegalStateException if the bus was built without a journal
+     */
+    public JournalSubscription<T> addSubscriber(Class<? extends T> clazz, Consumer<T> subscriber, long fromOffset) {
+        if (clazz == null || subscriber == null) {
+            throw new IllegalArgumentException("Class and Subscriber Must Be Non Null");
+        }
+        if (journal == null) { throw new IllegalStateException("Bus Has No Journal"); }
+
+        final JournalSubscription<T> subscription = new JournalSubscription<>(journal, clazz, subscriber, fromOffset);
+        journalSubscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    private FilteredEventSubscriber<T> newSubscriber(Class<? extends T> clazz, Consumer<T> subscriber, Predicate<T> filter) {
+        if (maxConcurrencyPerSubscriber == 0 && metrics == null) { return new FilteredEventSubscriber<>(subscriber, filter); }
+        return new Subscription<>(subscriber, filter, maxConcurrencyPerSubscriber,
+                metrics != null ? metrics.registerSubscriber(clazz, subscriber) : null);
+    }
+
+    /**
+     * Full batches are handed to the subscriber pool as one task instead of one task per event,
+     * partial batches are flushed by a scheduler once they have lingered for maxLingerMillis.
+     * A subscriber gets one batch at a time, in the order the batches were cut.
+     *
+     * @param clazz
+     * @param subscriber
+     * @param maxBatchSize
+     * @param maxLingerMillis
+     */
+    @Override
+    public void addBatchSubscriber(Class<? extends T> clazz, Consumer<List<T>> subscriber, int maxBatchSize, long maxLingerMillis) {
+        if (clazz == null || subscriber == null) {
+            throw new IllegalArgumentException("Class and Subscriber Must Be Non Null");
+        }
+        final BatchingSubscriber<T> batchingSubscriber = new BatchingSubscriber<>(subscriber, maxBatchSize, maxLingerMillis,
+                metrics != null ? metrics.registerSubscriber(clazz, subscriber) : null);
+        batchSubscriberMap.add(clazz, batchingSubscriber);
+
+        // Check at half the linger time so a partial batch never waits much over its limit
+        final long flushPeriodMillis = Math.max(1, maxLingerMillis / 2);
+        batchFlusher().scheduleAtFixedRate(() -> {
+            if (batchingSubscriber.queueLingered()) { consumerThreadPool.submit(batchingSubscriber::deliverQueued); }
+        }, flushPeriodMillis, flushPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized ScheduledExecutorService batchFlusher() {
+        if (batchFlusher == null) { batchFlusher = Executors.newSingleThreadScheduledExecutor(); }
+        return batchFlusher;
+    }
+
+    private EventQueue<T> laneFor(T event) {
+        if (lanes.length == 1) { return lanes[0]; }
+
+        final Object key = partitionKey != null ? partitionKey.apply(event) : event.getClass();
+        // Spread the hash as class hash codes are identity based and the low bits can be poorly distributed
+        final int hash = key == null ? 0 : key.hashCode();
+        return lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
     }
 
     private void start() {
-        consumerThreadPool.submit( () -> {
-
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-
-                    // Get Latest Event and Publish to Subscribers
-                    Event<T> eventObj = queue.take();
-                    T event = eventObj.get();
-
-                    Event<T> latestEventObj = mostRecentEvent.get(event.getClass());
-                    final T latestEvent = (latestEventObj != null) ? latestEventObj.get() : event;
-
-                    // For Each Subscriber for Event, Submit to Thread Pool for Consumption
-                    List<FilteredEventSubscriber<T>> subscribers = subscriberMap.get(event.getClass());
-                    if (subscribers == null || subscribers.isEmpty()) { continue; }
-
-                    subscribers.forEach(sub -> {
-                        if (sub.getFilter().test(latestEvent)) {
-                            consumerThreadPool.submit(() -> {
-                                try {
-                                    sub.getConsumer().accept(latestEvent);
-                                } catch (Exception e) {
-                                    System.out.println("Error notifying subscriber for event" + e.getMessage());
-                                }
-                            });
-                        }
-                    });
-                } catch (final InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+        // Each lane gets its own thread. With inline delivery ordering holds within the lane
+        for (EventQueue<T> lane : lanes) {
+            laneThreadPool.submit(() -> dispatchLoop(lane));
+        }
+    }
+
+    private void dispatchLoop(EventQueue<T> queue) {
+        try {
+            // Get Next Event and Publish to Subscribers. In conflating mode this is already the latest per key
+            while (running) { dispatch(queue.take()); }
+        } catch (final InterruptedException e) {
+            // Shutdown woke the loop up, the interrupt is restored once the queue is drained
+        }
+
+        // Hand over what was published before shutdown, the consumer pool still takes tasks until every loop is done
+        for (T event = queue.poll(); event != null; event = queue.poll()) { dispatch(event); }
+        Thread.currentThread().interrupt();
+    }
+
+    private void dispatch(T latestEvent) {
+        // For Each Subscriber for Event, Submit to Thread Pool for Consumption
+        for (FilteredEventSubscriber<T> sub : subscriberMap.get(latestEvent.getClass())) {
+            if (sub.getFilter().test(latestEvent)) {
+                final long dispatchNanos = metrics != null ? System.nanoTime() : 0;
+                if (deliverInline) {
+                    notifySubscriber(sub, latestEvent, dispatchNanos);
+                } else {
+                    consumerThreadPool.submit(() -> notifySubscriber(sub, latestEvent, dispatchNanos));
                 }
             }
-        });
+        }
+
+        // Batch subscribers only get a task once their batch is full
+        for (BatchingSubscriber<T> batchSub : batchSubscriberMap.get(latestEvent.getClass())) {
+            if (!batchSub.queue(latestEvent)) { continue; }
+            if (deliverInline) {
+                batchSub.deliverQueued();
+            } else {
+                consumerThreadPool.submit(batchSub::deliverQueued);
+            }
+        }
     }
 
+    private void notifySubscriber(FilteredEventSubscriber<T> sub, T event, long dispatchNanos) {
+        final Subscription<T> subscription = sub instanceof Subscription<T> s ? s : null;
+        final Semaphore permits = subscription != null ? subscription.getPermits() : null;
+        final EventBusMetrics.SubscriberMetrics subscriberMetrics = subscription != null ? subscription.getMetrics() : null;
+
+        // Waiting for a permit parks a virtual thread, which is cheap, rather than holding up dispatch
+        try {
+            if (permits != null) { permits.acquire(); }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        final long start = metrics != null ? System.nanoTime() : 0;
+        if (metrics != null) { metrics.recordDelivery(dispatchNanos, start); }
+        try {
+            sub.getConsumer().accept(event);
+        } catch (Exception e) {
+            if (subscriberMetrics != null) { subscriberMetrics.recordError(); }
+            System.out.println("Error notifying subscriber for event" + e.getMessage());
+        } finally {
+            if (subscriberMetrics != null) { subscriberMetrics.recordExecution(System.nanoTime() - start); }
+            if (permits != null) { permits.release(); }
+        }
+    }
+
+    private int queueDepth() {
+        int depth = 0;
+        for (EventQueue<T> lane : lanes) { depth += lane.size(); }
+        return depth;
+    }
+
+    /**
+     * @return metrics, or null if the bus was built without them
+     */
+    public EventBusMetrics getMetrics() { return metrics; }
+
     // This can be more customized based on requirements or take in configuration or using setters
     public void shutdown() {
-        consumerThreadPool.shutdown();
+        journalSubscriptions.forEach(JournalSubscription::close);
+
+        // Dispatch loops sit in take() while their queue is empty, wake them up. Each one delivers what is left in
+        // its queue before it exits. A subscriber running on a dispatch thread at that moment sees the interrupt
+        running = false;
+        laneThreadPool.shutdownNow();
+        awaitTermination(laneThreadPool);
+        synchronized (this) {
+            if (batchFlusher != null) { shutdown(batchFlusher); }
+        }
+
+        // Hand over partial batches before the pool stops taking tasks
+        batchSubscriberMap.getRegistrations().values().forEach(batchSubscribers ->
+                batchSubscribers.forEach(batchSub -> {
+                    if (batchSub.queueRemaining()) { consumerThreadPool.submit(batchSub::deliverQueued); }
+                }));
+        shutdown(consumerThreadPool);
+    }
+
+    private static void shutdown(ExecutorService executorService) {
+        executorService.shutdown();
+        awaitTermination(executorService);
+    }
+
+    private static void awaitTermination(ExecutorService executorService) {
         try {
-            if (!consumerThreadPool.awaitTermination(60, TimeUnit.SECONDS)) {
-                consumerThreadPool.shutdownNow();
+            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
             }
         } catch (final InterruptedException e) {
-            consumerThreadPool.shutdownNow();
+            executorService.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * What a bounded bus does with an event published while its queue is full.
+     */
+    public enum OverflowPolicy {
+        // Wait for space
+        BLOCK,
+        // Reject the event, publishEvent throws and publish returns REJECTED
+        FAIL,
+        // Evict the oldest queued event to make room
+        DROP_OLDEST,
+        // Silently discard the event being published
+        DROP_NEWEST,
+        // Keep one pending event per class, a newer one replaces it in place. Capacity bounds distinct classes
+        COALESCE
+    }
+
+    public enum PublishResult {
+        ACCEPTED, COALESCED, DROPPED_OLDEST, DROPPED_NEWEST, REJECTED;
+
+        public boolean isAccepted() { return this == ACCEPTED || this == COALESCED || this == DROPPED_OLDEST; }
+    }
+
+    public static class Builder<T> {
+        private int threadPoolSize = Runtime.getRuntime().availableProcessors();
+        private int ringBufferSize;
+        private WaitStrategy waitStrategy;
+        private int capacity;
+        private OverflowPolicy overflowPolicy;
+        private int laneCount;
+        private Function<? super T, ?> partitionKey;
+        private boolean virtualThreads;
+        private boolean conflating;
+        private Function<? super T, ?> conflationKey;
+        private int maxConcurrencyPerSubscriber;
+        private boolean metrics;
+        private EventJournal<T> journal;
+        private boolean inlineDelivery;
+
+        public Builder<T> threadPoolSize(int threadPoolSize) {
+            if (threadPoolSize <= 0) { throw new IllegalArgumentException("threadPoolSize must be greater than 0"); }
+            this.threadPoolSize = threadPoolSize;
+            return this;
+        }
+
+        /**
+         * Use a preallocated ring buffer per lane instead of a linked queue. Pair with {@link #inlineDelivery()} to
+         * keep the pool hand off, and the contention the ring buffer takes out of publishing, off the delivery path.
+         *
+         * @param ringBufferSize must be a power of 2
+         * @param waitStrategy
+         */
+        public Builder<T> ringBuffer(int ringBufferSize, WaitStrategy waitStrategy) {
+            if (ringBufferSize <= 0 || Integer.bitCount(ringBufferSize) != 1) {
+                throw new IllegalArgumentException("ringBufferSize must be a power of 2");
+            }
+            if (waitStrategy == null) { throw new IllegalArgumentException("WaitStrategy Must Be Non Null"); }
+            this.ringBufferSize = ringBufferSize;
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * Bound each lane's queue and pick what happens when it is full. Not combinable with ring buffer mode.
+         * Subscriber calls are still handed to the pool, so {@link OverflowPolicy#COALESCE} coalesces only what waits
+         * in the queue. Add {@link #inlineDelivery()} to keep each class in publish order.
+         *
+         * @param capacity
+         * @param overflowPolicy
+         */
+        public Builder<T> bounded(int capacity, OverflowPolicy overflowPolicy) {
+            if (capacity <= 0) { throw new IllegalArgumentException("capacity must be greater than 0"); }
+            if (overflowPolicy == null) { throw new IllegalArgumentException("OverflowPolicy Must Be Non Null"); }
+            this.capacity = capacity;
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Hash event classes onto independent lanes, each with its own queue and dispatch thread.
+         * With {@link #inlineDelivery()} subscribers are called on the lane thread, so events in the same lane are
+         * delivered in publish order. Otherwise calls are handed to the pool and may overlap.
+         *
+         * @param laneCount
+         */
+        public Builder<T> sharded(int laneCount) {
+            return sharded(laneCount, null);
+        }
+
+        /**
+         * @param laneCount
+         * @param partitionKey key to hash onto a lane, event class is used when null
+         */
+        public Builder<T> sharded(int laneCount, Function<? super T, ?> partitionKey) {
+            if (laneCount <= 0) { throw new IllegalArgumentException("laneCount must be greater than 0"); }
+            this.laneCount = laneCount;
+            this.partitionKey = partitionKey;
+            return this;
+        }
+
+        /**
+         * Latest value mode for market data style feeds. Each key keeps one pending slot that publishers overwrite
+         * in place, and every pending value is delivered exactly once, so intermediate values may be skipped.
+         * With {@link #inlineDelivery()} a key's values arrive in publish order and whatever is published while a
+         * subscriber runs coalesces. Handed to the pool, two values of a key can overlap or arrive out of order.
+         * Unbounded unless combined with {@link #bounded(int, OverflowPolicy)} using {@link OverflowPolicy#COALESCE}.
+         *
+         * @param conflationKey key of the pending slot, event class when null
+         */
+        public Builder<T> conflating(Function<? super T, ?> conflationKey) {
+            this.conflating = true;
+            this.conflationKey = conflationKey;
+            return this;
+        }
+
+        /**
+         * Run each subscriber call on its own virtual thread so blocking subscribers do not exhaust a pool.
+         * threadPoolSize is ignored. Sharded lanes hand off to virtual threads too, so lane ordering is not kept.
+         *
+         * @param maxConcurrencyPerSubscriber calls of one subscriber allowed to run at once, 0 for no limit
+         */
+        public Builder<T> virtualThreads(int maxConcurrencyPerSubscriber) {
+            if (maxConcurrencyPerSubscriber < 0) {
+                throw new IllegalArgumentException("maxConcurrencyPerSubscriber must not be negative");
+            }
+            this.virtualThreads = true;
+            this.maxConcurrencyPerSubscriber = maxConcurrencyPerSubscriber;
+            return this;
+        }
+
+        /**
+         * Record publish rate, queue depth, delivery latency and per subscriber execution time and errors.
+         * Read them through {@link MultiThreadedEventBus#getMetrics()}.
+         */
+        public Builder<T> metrics() {
+            this.metrics = true;
+            return this;
+        }
+
+        /**
+         * Append every published event to the journal before queueing it, so events in flight survive a crash and
+         * late subscribers can replay with {@link MultiThreadedEventBus#addSubscriber(Class, Consumer, long)}.
+         * The journal belongs to the caller and stays open after shutdown.
+         *
+         * @param journal
+         */
+        public Builder<T> journal(EventJournal<T> journal) {
+            if (journal == null) { throw new IllegalArgumentException("Journal Must Be Non Null"); }
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * Call subscribers on the dispatch thread instead of handing each call to the pool. Saves a task and a pool
+         * queue per call and keeps each lane in publish order, but threadPoolSize then only serves batch flushes and
+         * one slow subscriber holds up its whole lane until the queue fills and publishers back up. Only for fast,
+         * non blocking subscribers, shard the bus to deliver on more than one thread.
+         */
+        public Builder<T> inlineDelivery() {
+            this.inlineDelivery = true;
+            return this;
+        }
+
+        private boolean isCoalescing() { return conflating || overflowPolicy == OverflowPolicy.COALESCE; }
+
+        public MultiThreadedEventBus<T> build() {
+            if (ringBufferSize > 0 && overflowPolicy != null) {
+                throw new IllegalStateException("Ring buffer and bounded queue can not be combined");
+            }
+            if (conflating && (ringBufferSize > 0 || (overflowPolicy != null && overflowPolicy != OverflowPolicy.COALESCE))) {
+                throw new IllegalStateException("Conflating mode can only be bounded with the COALESCE policy");
+            }
+            if (inlineDelivery && virtualThreads) {
+                throw new IllegalStateException("Inline delivery and virtual threads can not be combined");
+            }
+            return new MultiThreadedEventBus<>(this);
+        }
+    }
 }
@@ -3,45 +3,89 @@ package org.home.core.service;
 import org.home.core.ProbabilisticRandomGen;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 public class ProbabilisticRandomGenImpl implements ProbabilisticRandomGen {
+    private static final double THRESHOLD_SCALE = 0x1p32;
+    // Samples per fork join leaf, fixed so the split tree and with it the output only depend on the seed
+    private static final int PARALLEL_CHUNK = 1 << 16;
+
     private final int size;
-    private final int[] alias;
-    private final double[] probability;
-    private final Random random;
+    private final int[] outcomes;
+    // Column i is [2i] = probability of keeping it as an unsigned 32 bit fraction, [2i + 1] = its alias's outcome,
+    // so a draw touches one cache line of this array plus one of outcomes
+    private final int[] thresholdAndAlias;
 
-    private List<NumAndProbability> weightedNums;
+    // Legacy path, null unless a Random was passed in
+    private final Random random;
+    private final Supplier<? extends RandomGenerator> generator;
 
+    /**
+     * @param weightedNums outcomes and their probabilities, should sum to 1
+     * @param random shared generator to sample with, null samples with a generator per thread
+     */
     public ProbabilisticRandomGenImpl(final List<NumAndProbability> weightedNums, final Random random) {
+        this(weightedNums, random, ThreadLocalRandom::current);
+    }
+
+    private ProbabilisticRandomGenImpl(final List<NumAndProbability> weightedNums, final Random random,
+                                       final Supplier<? extends RandomGenerator> generator) {
 
         if (weightedNums == null) { throw new NullPointerException("WeightedNums must be non null"); }
         if (weightedNums.isEmpty()) { throw new IllegalArgumentException("WeightedNums must be non empty"); }
 
-        this.random = random != null ? random : new Random();
+        this.random = random;
+        this.generator = generator;
         this.size = weightedNums.size();
-        this.weightedNums = weightedNums;
-        this.alias = new int[size];
-        this.probability = new double[size];
-        process();
+        this.outcomes = new int[size];
+        this.thresholdAndAlias = new int[size * 2];
+        process(weightedNums);
     }
 
-    // Using Alias Method for Weighted Random Sampling
-    private void process() {
-
-        Stack<Integer> smaller = new Stack<>();
-        Stack<Integer> larger = new Stack<>();
+    /**
+     * Samples with a {@link SplittableRandom} per thread, split from one seeded root, so threads never share a seed.
+     *
+     * @param weightedNums outcomes and their probabilities, should sum to 1
+     * @param seed
+     */
+    public static ProbabilisticRandomGenImpl perThread(final List<NumAndProbability> weightedNums, final long seed) {
+        final SplittableRandom root = new SplittableRandom(seed);
+        final ThreadLocal<SplittableRandom> perThread = ThreadLocal.withInitial(() -> {
+            synchronized (root) { return root.split(); }
+        });
+        return new ProbabilisticRandomGenImpl(weightedNums, null, perThread::get);
+    }
 
-        IntStream.range(0, size).forEach(i -> {
+    // Using Alias Method for Weighted Random Sampling
+    private void process(final List<NumAndProbability> weightedNums) {
+
+        final double[] probability = new double[size];
+        final int[] alias = new int[size];
+        // Primitive stacks, every index is on at most one of them at a time
+        final int[] smaller = new int[size];
+        final int[] larger = new int[size];
+        int smallerSize = 0;
+        int largerSize = 0;
+
+        for (int i = 0; i < size; i++) {
+            outcomes[i] = weightedNums.get(i).getNumber();
             probability[i] = weightedNums.get(i).getProbabilityOfSample() * size;
-            (probability[i] < 1.0 ? smaller : larger).add(i);
-        });
+            alias[i] = i;
+            if (probability[i] < 1.0) { smaller[smallerSize++] = i; }
+            else { larger[largerSize++] = i; }
+        }
 
         // Distribute the probabilities to have at most 2 in a bucket with the sum close to 1
-        while (!smaller.isEmpty() && !larger.isEmpty()) {
-            int smallIndex = smaller.pop();
-            int largeIndex = larger.pop();
+        while (smallerSize > 0 && largerSize > 0) {
+            int smallIndex = smaller[--smallerSize];
+            int largeIndex = larger[--largerSize];
 
             // Set alias of small prob to large one. Now we have distributed probability from the large index to small
             // and need to reduce the probability of the large index
@@ -49,22 +93,146 @@ public class ProbabilisticRandomGenImpl implements ProbabilisticRandomGen {
             probability[largeIndex] = (probability[largeIndex] + probability[smallIndex]) - 1.0;
 
             // now that probability of large index has been reduced, it has to go back into the queue to be distributed
-            (probability[largeIndex] < 1.0 ? smaller : larger).add(largeIndex);
+            if (probability[largeIndex] < 1.0) { smaller[smallerSize++] = largeIndex; }
+            else { larger[largerSize++] = largeIndex; }
         }
 
-        while (!larger.isEmpty()) {
-            probability[larger.pop()] = 1.0;
+        // Leftovers are full columns, aliasing them to themselves makes the threshold irrelevant
+        while (largerSize > 0) { probability[larger[--largerSize]] = 1.0; }
+        while (smallerSize > 0) { probability[smaller[--smallerSize]] = 1.0; }
+
+        IntStream.range(0, size).forEach(i -> {
+            thresholdAndAlias[i * 2] = (int) Math.min(0xFFFFFFFFL, (long) (probability[i] * THRESHOLD_SCALE));
+            thresholdAndAlias[i * 2 + 1] = outcomes[alias[i]];
+        });
+    }
+
+    @Override
+    public int nextFromSample() {
+        if (random != null) {
+            final int column = random.nextInt(size);
+            return keep(column, (int) (long) (random.nextDouble() * THRESHOLD_SCALE));
         }
+        return sample(generator.get().nextLong());
+    }
 
-        while (!smaller.isEmpty()) {
-            probability[smaller.pop()] = 1.0;
+    /**
+     * Tight loop over the array, one generator lookup for the whole range instead of one per sample.
+     */
+    @Override
+    public void nextFromSample(int[] dest, int off, int len) {
+        Objects.checkFromIndexSize(off, len, dest.length);
+        if (random != null) {
+            for (int i = off; i < off + len; i++) { dest[i] = nextFromSample(); }
+            return;
         }
+        fill(dest, off, off + len, generator.get());
     }
 
+    /**
+     * Sized stream, safe to run in parallel. Each split samples with its own thread's generator.
+     */
     @Override
-    public int nextFromSample() {
-        final int column = random.nextInt(size);
-        final int index = random.nextDouble() < probability[column] ? column : alias[column];
-        return weightedNums.get(index).getNumber();
+    public IntStream samples(long n) {
+        if (n < 0) { throw new IllegalArgumentException("n must not be negative"); }
+        return StreamSupport.intStream(new SampleSpliterator(0, n), false);
+    }
+
+    /**
+     * Fills dest[off, off + len) across the common fork join pool. Every chunk gets its own {@link SplittableRandom}
+     * split from the seed in a fixed order, so the same seed gives the same array whatever the pool size.
+     *
+     * @param dest
+     * @param off
+     * @param len
+     * @param seed
+     */
+    public void parallelFill(int[] dest, int off, int len, long seed) {
+        Objects.checkFromIndexSize(off, len, dest.length);
+        ForkJoinPool.commonPool().invoke(new FillTask(dest, off, off + len, new SplittableRandom(seed)));
+    }
+
+    private void fill(int[] dest, int from, int to, RandomGenerator rng) {
+        for (int i = from; i < to; i++) { dest[i] = sample(rng.nextLong()); }
+    }
+
+    /**
+     * One 64 bit draw: the high half picks the column, the low half is compared against its threshold.
+     */
+    private int sample(final long bits) {
+        final int column = (int) (((bits >>> 32) * size) >>> 32);
+        return keep(column, (int) bits);
+    }
+
+    private int keep(final int column, final int fraction) {
+        final int entry = column << 1;
+        return Integer.compareUnsigned(fraction, thresholdAndAlias[entry]) < 0 ? outcomes[column] : thresholdAndAlias[entry + 1];
+    }
+
+    // Only Serializable through RecursiveAction, tasks never leave the pool
+    @SuppressWarnings("serial")
+    private class FillTask extends RecursiveAction {
+        private final int[] dest;
+        private final int from;
+        private final int to;
+        private final SplittableRandom rng;
+
+        FillTask(int[] dest, int from, int to, SplittableRandom rng) {
+            this.dest = dest;
+            this.from = from;
+            this.to = to;
+            this.rng = rng;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                fill(dest, from, to, rng);
+                return;
+            }
+            // Split before either half runs, so which generator fills which range never depends on scheduling
+            final int mid = (from + to) >>> 1;
+            invokeAll(new FillTask(dest, from, mid, rng.split()), new FillTask(dest, mid, to, rng));
+        }
+    }
+
+    private class SampleSpliterator implements Spliterator.OfInt {
+        private long index;
+        private final long fence;
+
+        SampleSpliterator(long index, long fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            final long mid = (index + fence) >>> 1;
+            return mid <= index ? null : new SampleSpliterator(index, index = mid);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) { return false; }
+            action.accept(nextFromSample());
+            index++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (random != null) {
+                while (index < fence) { action.accept(nextFromSample()); index++; }
+                return;
+            }
+            final RandomGenerator rng = generator.get();
+            while (index < fence) { action.accept(sample(rng.nextLong())); index++; }
+        }
+
+        @Override
+        public long estimateSize() { return fence - index; }
+
+        @Override
+        public int characteristics() { return SIZED | SUBSIZED | NONNULL | IMMUTABLE; }
     }
 }
\ No newline at end of file
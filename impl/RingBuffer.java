@@ -0,0 +1,117 @@
+package org.home.core.service;
+
+import org.home.core.WaitStrategy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated, power of two sized ring buffer. Many publishers, one consumer.
+ * <p>
+ * Each slot has a sequence counter telling whose turn it is: publishers claim a slot by CAS on the tail sequence,
+ * write the event into the slot and then bump the slot sequence to publish it. The consumer waits for that sequence,
+ * reads the event, clears the slot and hands it back to publishers one lap later. No locks and no allocation
+ * after construction, the slots are reused forever.
+ */
+public class RingBuffer<T> implements EventQueue<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final WaitStrategy waitStrategy;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2");
+        }
+        if (waitStrategy == null) { throw new IllegalArgumentException("WaitStrategy Must Be Non Null"); }
+
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.waitStrategy = waitStrategy;
+
+        // Slot i is free for the publisher claiming sequence i
+        for (int i = 0; i < capacity; i++) { sequences.set(i, i); }
+    }
+
+    @Override
+    public boolean offer(T event) {
+        if (event == null) { throw new IllegalArgumentException("Event Must Be Non Null"); }
+
+        long sequence = tail.get();
+        while (true) {
+            final int index = (int) sequence & mask;
+            final long diff = sequences.get(index) - sequence;
+
+            if (diff == 0) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    slots[index] = event;
+                    // Publish the slot. Release store is enough as only the consumer reads it
+                    sequences.lazySet(index, sequence + 1);
+                    return true;
+                }
+                sequence = tail.get();
+            } else if (diff < 0) {
+                // Consumer has not freed this slot yet, a full lap behind
+                return false;
+            } else {
+                // Another publisher claimed it first
+                sequence = tail.get();
+            }
+        }
+    }
+
+    @Override
+    public void put(T event) throws InterruptedException {
+        int attempt = 0;
+        while (!offer(event)) {
+            if (Thread.interrupted()) { throw new InterruptedException(); }
+            waitStrategy.idle(attempt++);
+        }
+    }
+
+    /**
+     * Only to be called from the single consumer thread.
+     *
+     * @return next event or null if nothing is published yet
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        final long sequence = head.get();
+        final int index = (int) sequence & mask;
+        if (sequences.get(index) != sequence + 1) { return null; }
+
+        final T event = (T) slots[index];
+        slots[index] = null;
+        head.lazySet(sequence + 1);
+        // Hand the slot back to publishers for the next lap
+        sequences.lazySet(index, sequence + capacity);
+        return event;
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        int attempt = 0;
+        T event;
+        while ((event = poll()) == null) {
+            if (Thread.interrupted()) { throw new InterruptedException(); }
+            waitStrategy.idle(attempt++);
+        }
+        return event;
+    }
+
+    @Override
+    public int size() {
+        final long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() { return capacity; }
+}
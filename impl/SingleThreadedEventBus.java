@@ -2,36 +2,132 @@ package org.home.core.service;
 
 import org.home.core.EventBus;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+/**
+ * Delivers events on the publishing thread. Not thread safe, meant to be owned by a single event loop.
+ * <p>
+ * Publishing allocates nothing in steady state: subscribers are flat arrays that are swapped, never mutated, when
+ * someone registers, so registering from inside a subscriber is safe and takes effect from the next event. An event
+ * published from inside a subscriber is not delivered recursively but parked in a reusable pending queue and
+ * delivered by the outermost publish once the current event has reached every subscriber, in the order picked by
+ * the {@link ReentrancyPolicy}. The stack stays one publish deep however long the chain of events gets.
+ */
 public class SingleThreadedEventBus<T> implements EventBus<T> {
 
-    private final Map<Class<? extends T>, List<FilteredEventSubscriber<T>>> subscriberMap = new HashMap<>();
+    private static final int DEFAULT_PENDING_CAPACITY = 64;
+
+    /**
+     * Order in which events published during dispatch are delivered.
+     * <ul>
+     *     <li>{@link #DEPTH_FIRST}: the events a subscriber published are delivered right after the event that
+     *     caused them, before events published earlier. Same order as delivering them recursively would give,
+     *     except that the current event first reaches all of its subscribers.</li>
+     *     <li>{@link #BREADTH_FIRST}: first published, first delivered.</li>
+     * </ul>
+     */
+    public enum ReentrancyPolicy { DEPTH_FIRST, BREADTH_FIRST }
+
+    // Subscribers for a class also receive events of its subclasses, resolved once per concrete class and cached
+    @SuppressWarnings("unchecked")
+    private final DispatchTable<FilteredEventSubscriber<T>> subscriberMap = new DispatchTable<>(FilteredEventSubscriber[]::new);
+    @SuppressWarnings("unchecked")
+    private final DispatchTable<BatchingSubscriber<T>> batchSubscriberMap = new DispatchTable<>(BatchingSubscriber[]::new);
+
+    // Null unless enabled. Queue depth is always 0 as delivery happens on the publishing thread
+    private final EventBusMetrics metrics;
+
+    private final ReentrancyPolicy reentrancyPolicy;
+    private final PendingEvents<T> pending;
+    private boolean dispatching;
+
+    public SingleThreadedEventBus() {
+        this(false);
+    }
+
+    /**
+     * @param metricsEnabled record publish rate, delivery latency and per subscriber execution time and errors
+     */
+    public SingleThreadedEventBus(boolean metricsEnabled) {
+        this(ReentrancyPolicy.DEPTH_FIRST, DEFAULT_PENDING_CAPACITY, metricsEnabled);
+    }
+
+    /**
+     * @param reentrancyPolicy order of events published from inside subscribers
+     * @param pendingCapacity events that can wait during dispatch before the pending queue has to grow
+     * @param metricsEnabled record publish rate, delivery latency and per subscriber execution time and errors
+     */
+    public SingleThreadedEventBus(ReentrancyPolicy reentrancyPolicy, int pendingCapacity, boolean metricsEnabled) {
+        if (reentrancyPolicy == null) {
+            throw new IllegalArgumentException("Reentrancy Policy Must Be Non Null");
+        }
+        if (pendingCapacity <= 0) {
+            throw new IllegalArgumentException("pendingCapacity must be greater than 0");
+        }
+        this.reentrancyPolicy = reentrancyPolicy;
+        this.pending = new PendingEvents<>(pendingCapacity);
+        this.metrics = metricsEnabled ? new EventBusMetrics(null) : null;
+    }
 
     @Override
     public void publishEvent(T event) {
         if (event == null) throw new IllegalArgumentException("Event Must Be Non Null");
+        final long publishNanos = metrics != null ? System.nanoTime() : 0;
+        if (metrics != null) { metrics.recordPublish(); }
 
-        final List<FilteredEventSubscriber<T>> subscribers = subscriberMap.get(event.getClass());
-        if (subscribers == null || subscribers.isEmpty()) {
+        // Published from a subscriber, the outermost publish delivers it
+        if (dispatching) {
+            pending.add(event, publishNanos);
             return;
         }
 
+        dispatching = true;
+        try {
+            T next = event;
+            long nextPublishNanos = publishNanos;
+            while (true) {
+                final int waiting = pending.size();
+                dispatch(next, nextPublishNanos);
+                // Events were pushed in publish order, flip the new ones so the first published is taken next
+                if (reentrancyPolicy == ReentrancyPolicy.DEPTH_FIRST) { pending.reverseLast(pending.size() - waiting); }
+                if (pending.isEmpty()) { return; }
+
+                if (reentrancyPolicy == ReentrancyPolicy.BREADTH_FIRST) {
+                    nextPublishNanos = pending.firstNanos();
+                    next = pending.pollFirst();
+                } else {
+                    nextPublishNanos = pending.lastNanos();
+                    next = pending.pollLast();
+                }
+            }
+        } finally {
+            // Only left non empty if a filter threw, the rest of that chain is dropped with it
+            pending.clear();
+            dispatching = false;
+        }
+    }
+
+    private void dispatch(T event, long publishNanos) {
+        publishToBatchSubscribers(event);
+
         // Publish Event to Each Subscriber if Filter Passes
-        subscribers.forEach(sub -> {
+        for (FilteredEventSubscriber<T> sub : subscriberMap.get(event.getClass())) {
             if (sub.getFilter().test(event)) {
+                final long start = metrics != null ? System.nanoTime() : 0;
+                if (metrics != null) { metrics.recordDelivery(publishNanos, start); }
+                final EventBusMetrics.SubscriberMetrics subscriberMetrics = sub instanceof Subscription<T> s ? s.getMetrics() : null;
                 try {
                     sub.getConsumer().accept(event);
                 } catch (Exception e) {
+                    if (subscriberMetrics != null) { subscriberMetrics.recordError(); }
                     System.out.println("Exception Occurred While Notifying Subscriber" + e.getClass() + e.getMessage()); // ToDo Use logging service instead and clean up print
+                } finally {
+                    if (subscriberMetrics != null) { subscriberMetrics.recordExecution(System.nanoTime() - start); }
                 }
             }
-        });
+        }
     }
 
     @Override
@@ -39,7 +135,7 @@ public class SingleThreadedEventBus<T> implements EventBus<T> {
         if (clazz == null || subscriber == null) {
             throw new IllegalArgumentException("Class and Subscriber Must Be Non Null");
         }
-        subscriberMap.computeIfAbsent(clazz, _ -> new ArrayList<>()).add(new FilteredEventSubscriber<>(subscriber, event -> true));
+        subscriberMap.add(clazz, newSubscriber(clazz, subscriber, event -> true));
     }
 
     @Override
@@ -47,9 +143,129 @@ public class SingleThreadedEventBus<T> implements EventBus<T> {
         if (clazz == null || subscriber == null || filter == null) {
             throw new IllegalArgumentException("Inputs Must Be All Non Null");
         }
-        subscriberMap.computeIfAbsent(clazz, _ -> new ArrayList<>())
-                .add(new FilteredEventSubscriber<>(subscriber, filter));
+        subscriberMap.add(clazz, newSubscriber(clazz, subscriber, filter));
+    }
+
+    private FilteredEventSubscriber<T> newSubscriber(Class<? extends T> clazz, Consumer<T> subscriber, Predicate<T> filter) {
+        if (metrics == null) { return new FilteredEventSubscriber<>(subscriber, filter); }
+        return new Subscription<>(subscriber, filter, 0, metrics.registerSubscriber(clazz, subscriber));
     }
 
+    /**
+     * There is no timer thread on this bus, so linger is checked when an event of the same class is published.
+     * Call {@link #flushBatches()} from the event loop to hand over partial batches of quiet classes.
+     */
+    @Override
+    public void addBatchSubscriber(Class<? extends T> clazz, Consumer<List<T>> subscriber, int maxBatchSize, long maxLingerMillis) {
+        if (clazz == null || subscriber == null) {
+            throw new IllegalArgumentException("Class and Subscriber Must Be Non Null");
+        }
+        batchSubscriberMap.add(clazz, new BatchingSubscriber<>(subscriber, maxBatchSize, maxLingerMillis,
+                metrics != null ? metrics.registerSubscriber(clazz, subscriber) : null));
+    }
 
+    /**
+     * Delivers every partially filled batch now.
+     */
+    public void flushBatches() {
+        for (List<BatchingSubscriber<T>> batchSubscribers : batchSubscriberMap.getRegistrations().values()) {
+            for (BatchingSubscriber<T> batchSub : batchSubscribers) { batchSub.deliver(batchSub.drain()); }
+        }
+    }
+
+    /**
+     * @return metrics, or null if the bus was created without them
+     */
+    public EventBusMetrics getMetrics() { return metrics; }
+
+    private void publishToBatchSubscribers(T event) {
+        for (BatchingSubscriber<T> batchSub : batchSubscriberMap.get(event.getClass())) {
+            // Hand over a lingering batch first so events stay in publish order
+            batchSub.deliver(batchSub.pollLingered());
+            batchSub.deliver(batchSub.add(event));
+        }
+    }
+
+    /**
+     * Growable ring of events waiting to be delivered, with the publish time of each for the latency metric.
+     * Preallocated and reused, it only allocates when more events wait at once than ever before.
+     */
+    private static class PendingEvents<T> {
+        private Object[] events;
+        private long[] publishNanos;
+        private int head;
+        private int size;
+
+        PendingEvents(int capacity) {
+            this.events = new Object[capacity];
+            this.publishNanos = new long[capacity];
+        }
+
+        void add(T event, long nanos) {
+            if (size == events.length) { grow(); }
+            final int index = (head + size) % events.length;
+            events[index] = event;
+            publishNanos[index] = nanos;
+            size++;
+        }
+
+        long firstNanos() { return publishNanos[head]; }
+
+        long lastNanos() { return publishNanos[(head + size - 1) % events.length]; }
+
+        @SuppressWarnings("unchecked")
+        T pollFirst() {
+            final T event = (T) events[head];
+            events[head] = null;
+            head = (head + 1) % events.length;
+            size--;
+            return event;
+        }
+
+        @SuppressWarnings("unchecked")
+        T pollLast() {
+            final int index = (head + size - 1) % events.length;
+            final T event = (T) events[index];
+            events[index] = null;
+            size--;
+            return event;
+        }
+
+        /**
+         * Reverses the order of the last count events.
+         */
+        void reverseLast(int count) {
+            for (int i = size - count, j = size - 1; i < j; i++, j--) {
+                final int left = (head + i) % events.length;
+                final int right = (head + j) % events.length;
+                final Object event = events[left];
+                events[left] = events[right];
+                events[right] = event;
+                final long nanos = publishNanos[left];
+                publishNanos[left] = publishNanos[right];
+                publishNanos[right] = nanos;
+            }
+        }
+
+        boolean isEmpty() { return size == 0; }
+
+        int size() { return size; }
+
+        void clear() {
+            while (size > 0) { pollFirst(); }
+            head = 0;
+        }
+
+        private void grow() {
+            final Object[] grownEvents = new Object[events.length * 2];
+            final long[] grownNanos = new long[events.length * 2];
+            for (int i = 0; i < size; i++) {
+                grownEvents[i] = events[(head + i) % events.length];
+                grownNanos[i] = publishNanos[(head + i) % events.length];
+            }
+            events = grownEvents;
+            publishNanos = grownNanos;
+            head = 0;
+        }
+    }
 }
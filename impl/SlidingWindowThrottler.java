@@ -0,0 +1,291 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Sliding window throttler built on a fixed array of time bucketed counters instead of a log of every request.
+ * Recording is O(1), admission is O(1) in approximate mode and O(bucketCount) in precise mode, which sums every
+ * slice. Both are lock free and allocation free, and memory does not depend on maxRequests.
+ * <p>
+ * Each bucket is one long packing the bucket's epoch (which window slice it counts) in the high 32 bits and the
+ * count in the low 32 bits, so a stale bucket is reset and incremented in a single CAS.
+ * <ul>
+ *     <li>{@link Mode#PRECISE}: window split into bucketCount slices, counts every slice still in the window.
+ *     Exact to one slice of granularity.</li>
+ *     <li>{@link Mode#APPROXIMATE}: two window sized buckets, the previous one weighted by how much of it still
+ *     overlaps the window. Cheapest, assumes requests were spread evenly over the previous window.</li>
+ * </ul>
+ */
+public class SlidingWindowThrottler<T> implements Throttler<T> {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    public enum Mode { PRECISE, APPROXIMATE }
+
+    private final int maxRequests;
+    private final Mode mode;
+    private final int bucketCount;
+    private final long bucketNanos;
+    private final Clock clock;
+    private final long originNanos;
+    private final AtomicLongArray buckets;
+
+    // Waiters are one shot, checked again when the oldest counted bucket leaves the window. Released under their own
+    // lock so two checks never hand out the same free permits
+    private final ConcurrentLinkedQueue<Consumer<ThrottleResult>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean recheckScheduled = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param maxRequests
+     * @param windowTimeMillis
+     * @param mode
+     * @param bucketCount slices per window in precise mode, ignored in approximate mode
+     */
+    public SlidingWindowThrottler(int maxRequests, long windowTimeMillis, Mode mode, int bucketCount) {
+        this(maxRequests, windowTimeMillis, mode, bucketCount, Clock.system());
+    }
+
+    public SlidingWindowThrottler(int maxRequests, long windowTimeMillis, Mode mode, int bucketCount, Clock clock) {
+        if (maxRequests <= 0) {
+            throw new IllegalArgumentException("maxRequests must be greater than 0");
+        }
+        if (windowTimeMillis <= 0) {
+            throw new IllegalArgumentException("windowTimeMillis must be greater than 0");
+        }
+        if (mode == null || clock == null) {
+            throw new IllegalArgumentException("Mode And Clock Must Be Non Null");
+        }
+        if (mode == Mode.PRECISE && (bucketCount <= 0 || TimeUnit.MILLISECONDS.toNanos(windowTimeMillis) < bucketCount)) {
+            throw new IllegalArgumentException("bucketCount must be greater than 0 and at most one per nanosecond of window");
+        }
+
+        this.maxRequests = maxRequests;
+        this.mode = mode;
+        this.bucketCount = mode == Mode.PRECISE ? bucketCount : 2;
+        this.bucketNanos = mode == Mode.PRECISE
+                ? TimeUnit.MILLISECONDS.toNanos(windowTimeMillis) / bucketCount
+                : TimeUnit.MILLISECONDS.toNanos(windowTimeMillis);
+        this.buckets = new AtomicLongArray(this.bucketCount);
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+    }
+
+    /**
+     * @return ThrottleResult
+     */
+    @Override
+    public ThrottleResult shouldProceed() {
+        return count(clock.nanoTime() - originNanos) < maxRequests ? ThrottleResult.PROCEED : ThrottleResult.DO_NOT_PROCEED;
+    }
+
+    /**
+     * Subscriber is called once, in FIFO order with other waiters, when there is a free permit for it.
+     *
+     * @param subscriber
+     */
+    @Override
+    public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) {
+        if (subscriber == null) { throw new IllegalArgumentException("Subscriber Should be Non Null"); }
+        waiters.add(subscriber);
+        checkWaiters();
+    }
+
+    /**
+     * Records a request now.
+     */
+    public void addRequest() {
+        record(clock.nanoTime() - originNanos, 1);
+    }
+
+    /**
+     * @param event the event to add
+     * @throws IllegalArgumentException if the event is null
+     */
+    public void addRequest(Event<T> event) {
+        if (event == null) { throw new IllegalArgumentException("Event Must Be Non Null"); }
+        addRequest();
+    }
+
+    /**
+     * Lock free: reserves the permits first and then checks the window including them, giving them back if it is
+     * over the limit. Concurrent callers can never overshoot together, at worst both back off.
+     *
+     * @param permits cost of the request
+     * @return true if the permits were acquired
+     */
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0 || permits > maxRequests) {
+            throw new IllegalArgumentException("permits must be between 1 and maxRequests");
+        }
+        final long nanos = record(clock.nanoTime() - originNanos, permits);
+        if (count(nanos) <= maxRequests) { return true; }
+
+        release(nanos, permits);
+        return false;
+    }
+
+    /**
+     * Parks between attempts until the count should have dropped enough for the permits, see {@link #nanosUntilFree}.
+     *
+     * @param permits cost of the request
+     * @param timeout
+     * @param unit
+     * @return true if the permits were acquired before the timeout
+     */
+    @Override
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!tryAcquire(permits)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) { return false; }
+            if (Thread.interrupted()) { throw new InterruptedException(); }
+
+            LockSupport.parkNanos(this, Math.min(remaining, nanosUntilFree(clock.nanoTime() - originNanos, permits)));
+        }
+        return true;
+    }
+
+    /**
+     * @return the time the permits were recorded at, later than nanos if the caller was delayed by more than a lap
+     */
+    private long record(long nanos, int permits) {
+        while (true) {
+            final long epoch = nanos / bucketNanos;
+            final int index = (int) (epoch % bucketCount);
+            final long tag = (epoch & COUNT_MASK) << 32;
+            final long current = buckets.get(index);
+            // Int arithmetic so the 32 bit epoch wrapping around does not matter
+            final int age = (int) epoch - (int) (current >>> 32);
+
+            // The bucket already counts a later lap, resetting it would lose those permits. Record at the current time
+            if (age < 0) {
+                nanos = clock.nanoTime() - originNanos;
+                continue;
+            }
+            // Same slice keeps counting, a bucket left over from an older lap starts again
+            final long updated = age == 0 ? current + permits : tag | permits;
+            if (buckets.compareAndSet(index, current, updated)) { return nanos; }
+        }
+    }
+
+    private void release(long nanos, int permits) {
+        final long epoch = nanos / bucketNanos;
+        final int index = (int) (epoch % bucketCount);
+        final long tag = (epoch & COUNT_MASK) << 32;
+
+        while (true) {
+            final long current = buckets.get(index);
+            // Bucket already rolled over, the reservation expired with it
+            if ((current & ~COUNT_MASK) != tag) { return; }
+            if (buckets.compareAndSet(index, current, current - permits)) { return; }
+        }
+    }
+
+    private double count(long nanos) {
+        final long epoch = nanos / bucketNanos;
+
+        if (mode == Mode.APPROXIMATE) {
+            final double previousOverlap = 1.0 - (double) (nanos % bucketNanos) / bucketNanos;
+            return countFor(epoch - 1) * previousOverlap + countFor(epoch);
+        }
+
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            final long bucket = buckets.get(i);
+            // Int arithmetic so the 32 bit epoch wrapping around does not matter
+            final int age = (int) epoch - (int) (bucket >>> 32);
+            if (age >= 0 && age < bucketCount) { total += bucket & COUNT_MASK; }
+        }
+        return total;
+    }
+
+    private long countFor(long epoch) {
+        if (epoch < 0) { return 0; }
+        final long bucket = buckets.get((int) (epoch % bucketCount));
+        return (bucket >>> 32) == (epoch & COUNT_MASK) ? bucket & COUNT_MASK : 0;
+    }
+
+    /**
+     * Precise counts only drop when a slice leaves the window. The approximate count also falls continuously within
+     * a window, as the previous window's weight decays, so wait only for as much decay as the permits need.
+     *
+     * @return nanos until there should be room for permits, at least 1 and never past the next bucket rollover.
+     *         Right away if there is room already and a concurrent caller only just took it
+     */
+    private long nanosUntilFree(long nanos, int permits) {
+        final long untilNextBucket = bucketNanos - nanos % bucketNanos;
+        if (mode == Mode.PRECISE) { return untilNextBucket; }
+
+        final long previous = countFor(nanos / bucketNanos - 1);
+        final double excess = count(nanos) + permits - maxRequests;
+        if (excess <= 0) { return 1; }
+        if (previous == 0) { return untilNextBucket; }
+        return Math.max(1, Math.min(untilNextBucket, (long) Math.ceil(excess / previous * bucketNanos)));
+    }
+
+    /**
+     * Releases as many waiters as there are free permits, like {@link ThrottlerImpl}, then schedules the next check if
+     * any are left. Subscribers are called outside the lock so they can go straight on to acquire.
+     */
+    private void checkWaiters() {
+        final List<Consumer<ThrottleResult>> released = new ArrayList<>();
+        final long untilFree;
+        synchronized (waiters) {
+            final long nanos = clock.nanoTime() - originNanos;
+            // Approximate counts are fractional, any part of a permit left over still lets one more request in
+            int freePermits = (int) Math.ceil(maxRequests - count(nanos));
+            Consumer<ThrottleResult> waiter;
+            while (freePermits-- > 0 && (waiter = waiters.poll()) != null) { released.add(waiter); }
+            // Before the released waiters run and maybe acquire, so their permits are counted once
+            untilFree = nanosUntilFree(nanos, released.size() + 1);
+        }
+
+        for (Consumer<ThrottleResult> waiter : released) {
+            try {
+                waiter.accept(ThrottleResult.PROCEED);
+            } catch (final Exception e) {
+                System.out.println("Exception Occured Notifying Subscriber" + e.getMessage());
+            }
+        }
+
+        // Wake up once the next waiter should fit next to those just released. One pending recheck at a time
+        if (!waiters.isEmpty() && recheckScheduled.compareAndSet(false, true)) {
+            scheduler().schedule(this::recheckWaiters, untilFree, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recheckWaiters() {
+        recheckScheduled.set(false);
+        checkWaiters();
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "sliding-window-throttler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    public synchronized void quit() {
+        if (scheduler != null) { scheduler.shutdownNow(); }
+    }
+}
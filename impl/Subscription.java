@@ -0,0 +1,26 @@
+package org.home.core.service;
+
+import org.home.core.EventBus;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Subscriber with the optional extras a bus can attach at registration time, so delivery never has to look them up.
+ */
+public class Subscription<T> extends EventBus.FilteredEventSubscriber<T> {
+
+    // Both null when the feature is off
+    private final Semaphore permits;
+    private final EventBusMetrics.SubscriberMetrics metrics;
+
+    public Subscription(Consumer<T> consumer, Predicate<T> filter, int maxConcurrency, EventBusMetrics.SubscriberMetrics metrics) {
+        super(consumer, filter);
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+        this.metrics = metrics;
+    }
+
+    public Semaphore getPermits() { return permits; }
+    public EventBusMetrics.SubscriberMetrics getMetrics() { return metrics; }
+}
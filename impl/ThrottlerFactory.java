@@ -0,0 +1,58 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks a {@link Throttler} implementation for "maxRequests per window" limits.
+ */
+public final class ThrottlerFactory {
+
+    private static final int SLIDING_WINDOW_BUCKETS = 10;
+
+    public enum Algorithm {
+        // Timestamp of every request in the window, exact but memory grows with maxRequests
+        ROLLING_LOG,
+        // Time bucketed counters, lock free, exact to a tenth of the window
+        SLIDING_WINDOW,
+        // Burst of maxRequests, refilled evenly over the window
+        TOKEN_BUCKET,
+        // Same shaping as the token bucket with a single long of state and a CAS per decision
+        GCRA
+    }
+
+    private ThrottlerFactory() { }
+
+    public static <T> Throttler<T> create(Algorithm algorithm, int maxRequests, long windowTimeMillis) {
+        return create(algorithm, maxRequests, windowTimeMillis, Clock.system());
+    }
+
+    public static <T> Throttler<T> create(Algorithm algorithm, int maxRequests, long windowTimeMillis, Clock clock) {
+        if (algorithm == null) { throw new IllegalArgumentException("Algorithm Must Be Non Null"); }
+
+        switch (algorithm) {
+            case ROLLING_LOG:
+                return new ThrottlerImpl<>(maxRequests, windowTimeMillis, TimeUnit.MILLISECONDS, 1, clock);
+            case SLIDING_WINDOW:
+                return new SlidingWindowThrottler<>(maxRequests, windowTimeMillis, SlidingWindowThrottler.Mode.PRECISE,
+                        SLIDING_WINDOW_BUCKETS, clock);
+            case TOKEN_BUCKET:
+                return new TokenBucketThrottler<>(maxRequests,
+                        maxRequests * (double) TimeUnit.SECONDS.toMillis(1) / windowTimeMillis, clock);
+            case GCRA:
+                return new GcraThrottler<>(maxRequests, windowTimeMillis, maxRequests, clock);
+            default:
+                throw new IllegalArgumentException("Unknown Algorithm " + algorithm);
+        }
+    }
+
+    public static <T> Throttler<T> tokenBucket(int capacity, double refillTokensPerSecond) {
+        return new TokenBucketThrottler<>(capacity, refillTokensPerSecond);
+    }
+
+    public static <T> Throttler<T> gcra(int rate, long periodMillis, int burst) {
+        return new GcraThrottler<>(rate, periodMillis, burst);
+    }
+}
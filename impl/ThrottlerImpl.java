@@ -1,42 +1,73 @@
 package org.home.core.service;
 
+import org.home.core.Clock;
 import org.home.core.Throttler;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class ThrottlerImpl<T> implements Throttler<T> {
 
     private final int maxRequests;
-    private final long windowTimeMillis;
+    private final long windowNanos;
+    private final Clock clock;
     private final ScheduledExecutorService scheduler;
 
-    private final Queue<Event<T>> requests = new LinkedList<>();
-    private final CopyOnWriteArrayList<Consumer<ThrottleResult>> subscribers = new CopyOnWriteArrayList<>();
+    // Stamped on arrival with the throttler's clock, not the event's own wall clock timestamp
+    private final Queue<Request> requests = new LinkedList<>();
+    // Sum of permits of the requests in the window, same as requests.size() when every request weighs 1
+    private int permitsInWindow;
 
+    // One shot waiters in FIFO order, guarded by this. Woken only when the oldest request leaves the window
+    private final Queue<Consumer<ThrottleResult>> waiters = new ArrayDeque<>();
+    private ScheduledFuture<?> pendingWakeup;
+
+    /**
+     * @deprecated waiters are no longer polled, schedulerFrequency is ignored. Use {@link #ThrottlerImpl(int, long, int)}
+     */
+    @Deprecated
     public ThrottlerImpl(int maxRequests, long windowTimeMillis, int threads, int schedulerFrequency) {
+        this(maxRequests, windowTimeMillis, threads);
+    }
+
+    public ThrottlerImpl(int maxRequests, long windowTimeMillis, int threads) {
+        this(maxRequests, windowTimeMillis, TimeUnit.MILLISECONDS, threads, Clock.system());
+    }
+
+    /**
+     * @param maxRequests
+     * @param window length of the window, can be below a millisecond
+     * @param unit
+     * @param threads
+     * @param clock time source for the window, {@link Clock#manual()} makes tests deterministic
+     */
+    public ThrottlerImpl(int maxRequests, long window, TimeUnit unit, int threads, Clock clock) {
         // Input Checks Can Be Seen as Excessive Sometimes. Depends on Coding Standards
         if (maxRequests <= 0) {
             throw new IllegalArgumentException("maxRequests must be greater than 0");
         }
-        if (windowTimeMillis <= 0) {
-            throw new IllegalArgumentException("windowTimeMillis must be greater than 0");
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be greater than 0");
         }
         if (threads <= 0) {
             throw new IllegalArgumentException("threads must be greater than 0");
         }
+        if (unit == null || clock == null) {
+            throw new IllegalArgumentException("Unit And Clock Must Be Non Null");
+        }
 
         this.maxRequests = maxRequests;
-        this.windowTimeMillis = windowTimeMillis;
+        this.windowNanos = unit.toNanos(window);
+        this.clock = clock;
         this.scheduler = Executors.newScheduledThreadPool(threads);
-
-        // This can be configurable or set using setters
-        scheduler.scheduleAtFixedRate(this::notifySubscribers, 0, schedulerFrequency, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -44,21 +75,76 @@ public class ThrottlerImpl<T> implements Throttler<T> {
      */
     @Override
     public synchronized ThrottleResult shouldProceed() {
-        final long now = System.currentTimeMillis();
+        evictExpired(clock.nanoTime());
+        return (permitsInWindow > maxRequests) ? ThrottleResult.DO_NOT_PROCEED : ThrottleResult.PROCEED;
+    }
 
-        // Remove requests outside current window
-        while (!requests.isEmpty() && (now - requests.peek().getTimestamp()) > windowTimeMillis) { requests.poll(); }
+    /**
+     * Checks and records under the same lock, so concurrent callers can never admit more than maxRequests
+     * permits into the window between them.
+     *
+     * @param permits cost of the request
+     * @return true if the permits were acquired
+     */
+    @Override
+    public synchronized boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        evictExpired(clock.nanoTime());
+        if (permitsInWindow + permits > maxRequests) { return false; }
 
-        return (requests.size() > maxRequests) ? ThrottleResult.DO_NOT_PROCEED : ThrottleResult.PROCEED;
+        addRequest(clock.nanoTime(), permits);
+        return true;
     }
 
     /**
+     * Waits on the monitor until the oldest request leaves the window, instead of spinning, then tries again.
+     * The timeout is real time, whatever the clock.
+     *
+     * @param permits cost of the request
+     * @param timeout
+     * @param unit
+     * @return true if the permits were acquired before the timeout
+     */
+    @Override
+    public synchronized boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        checkPermits(permits);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!tryAcquire(permits)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) { return false; }
+
+            // Window only frees up when the oldest request expires. Requests are never empty here as permits fit max
+            final long untilOldestExpires = requests.peek().nanos + windowNanos + 1 - clock.nanoTime();
+            TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, Math.min(remaining, untilOldestExpires)));
+        }
+        return true;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0 || permits > maxRequests) {
+            throw new IllegalArgumentException("permits must be between 1 and maxRequests");
+        }
+    }
+
+    // Remove requests outside current window
+    private void evictExpired(long now) {
+        while (!requests.isEmpty() && (now - requests.peek().nanos) > windowNanos) {
+            permitsInWindow -= requests.poll().permits;
+        }
+    }
+
+    /**
+     * Subscriber is called once, in FIFO order with other waiters, when there is a free permit for it.
+     * Nothing runs while waiting, a single wakeup is scheduled for when the oldest request leaves the window.
+     *
      * @param subscriber
      */
     @Override
     public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) {
         if (subscriber == null) { throw new IllegalArgumentException("Subscriber Should be Non Null"); }
-        subscribers.add(subscriber);
+        synchronized (this) { waiters.add(subscriber); }
+        releaseWaiters();
     }
 
     /**
@@ -69,26 +155,53 @@ public class ThrottlerImpl<T> implements Throttler<T> {
      */
     public synchronized void addRequest(Event<T> event) {
         if (event == null) { throw new IllegalArgumentException("Event Must Be Non Null"); }
-        requests.add(event);
+        addRequest(clock.nanoTime(), event.getPermits());
+    }
+
+    private synchronized void addRequest(long now, int permits) {
+        requests.add(new Request(now, permits));
+        permitsInWindow += permits;
+        // Waiters left over once the window was empty need a wakeup now that something will expire
+        scheduleWakeup(now);
     }
 
     /**
-     * Notifies all subscribers with the current {@link ThrottleResult}.
-     * Only sends notifications if the result is {@link ThrottleResult#PROCEED}.
+     * Releases as many waiters as there are free permits, then schedules the next wakeup if any are left.
+     * Subscribers are called outside the lock so they can go straight on to acquire.
      */
-    private synchronized void notifySubscribers() {
-        final ThrottleResult result = shouldProceed();
-        if (result == ThrottleResult.PROCEED) {
-            subscribers.forEach(sub -> {
-                try {
-                    sub.accept(result);
-                } catch (final Exception e) {
-                    System.out.println("Exception Occured Notifying Subscriber" + e.getMessage());
-                }
-            });
+    private void releaseWaiters() {
+        final List<Consumer<ThrottleResult>> released = new ArrayList<>();
+
+        synchronized (this) {
+            final long now = clock.nanoTime();
+            evictExpired(now);
+
+            int freePermits = maxRequests - permitsInWindow;
+            while (freePermits-- > 0 && !waiters.isEmpty()) { released.add(waiters.poll()); }
+
+            scheduleWakeup(now);
+        }
+
+        for (Consumer<ThrottleResult> waiter : released) {
+            try {
+                waiter.accept(ThrottleResult.PROCEED);
+            } catch (final Exception e) {
+                System.out.println("Exception Occured Notifying Subscriber" + e.getMessage());
+            }
         }
     }
 
+    // Capacity only frees up when the oldest request expires, so that is the only time worth waking up. Guarded by this
+    private void scheduleWakeup(long now) {
+        if (waiters.isEmpty() || requests.isEmpty() || pendingWakeup != null) { return; }
+
+        final long oldestExpiry = requests.peek().nanos + windowNanos + 1;
+        pendingWakeup = scheduler.schedule(() -> {
+            synchronized (this) { pendingWakeup = null; }
+            releaseWaiters();
+        }, Math.max(0, oldestExpiry - now), TimeUnit.NANOSECONDS);
+    }
+
     public void quit() {
         scheduler.shutdown();
         try {
@@ -100,4 +213,14 @@ public class ThrottlerImpl<T> implements Throttler<T> {
             Thread.currentThread().interrupt();
         }
     }
+
+    private static class Request {
+        private final long nanos;
+        private final int permits;
+
+        Request(long nanos, int permits) {
+            this.nanos = nanos;
+            this.permits = permits;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Token bucket. Holds up to capacity tokens, refilled continuously at refillTokensPerSecond, and each request takes
+ * tokens for its permits. Bursts up to capacity go through at once, after that requests are shaped to the refill
+ * rate. State is two numbers, refilled lazily on each call, so memory does not depend on the rate.
+ */
+public class TokenBucketThrottler<T> implements Throttler<T> {
+
+    private final int capacity;
+    private final double refillTokensPerNano;
+    private final Clock clock;
+    private final long originNanos;
+
+    // Guarded by this
+    private double tokens;
+    private long lastRefillNanos;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param capacity largest burst, the bucket starts full
+     * @param refillTokensPerSecond
+     */
+    public TokenBucketThrottler(int capacity, double refillTokensPerSecond) {
+        this(capacity, refillTokensPerSecond, Clock.system());
+    }
+
+    public TokenBucketThrottler(int capacity, double refillTokensPerSecond, Clock clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        if (refillTokensPerSecond <= 0) {
+            throw new IllegalArgumentException("refillTokensPerSecond must be greater than 0");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock Must Be Non Null");
+        }
+
+        this.capacity = capacity;
+        this.refillTokensPerNano = refillTokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+    }
+
+    /**
+     * @return ThrottleResult
+     */
+    @Override
+    public synchronized ThrottleResult shouldProceed() {
+        refill();
+        return tokens >= 1 ? ThrottleResult.PROCEED : ThrottleResult.DO_NOT_PROCEED;
+    }
+
+    /**
+     * Subscriber is called once, when a token is available. Wakes up when the refill rate says one will be.
+     *
+     * @param subscriber
+     */
+    @Override
+    public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) {
+        if (subscriber == null) { throw new IllegalArgumentException("Subscriber Should be Non Null"); }
+
+        final long waitNanos = nanosUntilAvailable(1);
+        if (waitNanos > 0) {
+            scheduler().schedule(() -> notifyWhenCanProceed(subscriber), waitNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        try {
+            subscriber.accept(ThrottleResult.PROCEED);
+        } catch (final Exception e) {
+            System.out.println("Exception Occured Notifying Subscriber" + e.getMessage());
+        }
+    }
+
+    /**
+     * @param permits tokens to take
+     * @return true if the tokens were taken
+     */
+    @Override
+    public synchronized boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        refill();
+        if (tokens < permits) { return false; }
+
+        tokens -= permits;
+        return true;
+    }
+
+    /**
+     * Waits on the monitor for as long as the refill needs to cover the permits, then tries again.
+     *
+     * @param permits tokens to take
+     * @param timeout
+     * @param unit
+     * @return true if the tokens were taken before the timeout
+     */
+    @Override
+    public synchronized boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        checkPermits(permits);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!tryAcquire(permits)) {
+            final long waitNanos = nanosUntilAvailable(permits);
+            if (System.nanoTime() + waitNanos > deadline) { return false; }
+            TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, waitNanos));
+        }
+        return true;
+    }
+
+    private synchronized long nanosUntilAvailable(int permits) {
+        refill();
+        return tokens >= permits ? 0 : (long) Math.ceil((permits - tokens) / refillTokensPerNano);
+    }
+
+    private void refill() {
+        final long now = clock.nanoTime() - originNanos;
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillTokensPerNano);
+        lastRefillNanos = now;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0 || permits > capacity) {
+            throw new IllegalArgumentException("permits must be between 1 and capacity");
+        }
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "token-bucket-throttler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    public synchronized void quit() {
+        if (scheduler != null) { scheduler.shutdownNow(); }
+    }
+}
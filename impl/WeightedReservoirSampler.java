@@ -0,0 +1,176 @@
+package org.home.core.service;
+
+import org.home.core.ProbabilisticRandomGen.NumAndProbability;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Weighted sample of k numbers without replacement from a stream too large to hold, in O(k) memory. Weights do not
+ * need to be normalized or known up front, each offered number gets into the sample with the same odds as drawing
+ * k times from the whole population and removing what was drawn.
+ * <p>
+ * Every number gets a key u^(1 / weight), u uniform in (0, 1], and the k largest keys are the sample (A-Res, kept as
+ * ln(u) / weight so that small weights do not underflow). Once the reservoir is full it jumps over the numbers that
+ * could not beat the smallest key (A-ExpJ): one draw says how much weight to skip, so a stream of n numbers costs
+ * O(k log(n / k)) random draws instead of n.
+ * <p>
+ * Keys mean the same in every reservoir, so partitions of a stream can be sampled by separate workers and
+ * {@link #merge merged} into a sample of the whole. Not thread safe, one sampler per worker.
+ */
+public class WeightedReservoirSampler {
+
+    private final int k;
+    private final RandomGenerator random;
+
+    // Min heap on keys, so the number to evict is at the root
+    private final double[] keys;
+    private final int[] numbers;
+    private int size;
+
+    // Weight still to skip before the next number enters, only meaningful once the reservoir is full
+    private double weightToSkip;
+
+    /**
+     * @param k sample size
+     */
+    public WeightedReservoirSampler(int k) {
+        this(k, new SplittableRandom());
+    }
+
+    /**
+     * @param k sample size
+     * @param seed same seed and stream give the same sample
+     */
+    public WeightedReservoirSampler(int k, long seed) {
+        this(k, new SplittableRandom(seed));
+    }
+
+    public WeightedReservoirSampler(int k, RandomGenerator random) {
+        if (k <= 0) { throw new IllegalArgumentException("k must be greater than 0"); }
+        if (random == null) { throw new IllegalArgumentException("Random Must Be Non Null"); }
+
+        this.k = k;
+        this.random = random;
+        this.keys = new double[k];
+        this.numbers = new int[k];
+    }
+
+    /**
+     * @param number
+     * @param weight relative weight, 0 is never sampled
+     */
+    public void offer(int number, double weight) {
+        if (!(weight >= 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("weight must be finite and not negative");
+        }
+        if (weight == 0) { return; }
+
+        if (size < k) {
+            push(number, Math.log(uniform()) / weight);
+            if (size == k) { nextJump(); }
+            return;
+        }
+
+        weightToSkip -= weight;
+        if (weightToSkip > 0) { return; }
+
+        // This number beats the smallest key, so its key is drawn from what is left above it
+        final double beaten = Math.exp(keys[0] * weight);
+        final double u = beaten + (1 - beaten) * random.nextDouble();
+        replaceRoot(number, Math.log(u) / weight);
+        nextJump();
+    }
+
+    public void offer(NumAndProbability weightedNum) {
+        if (weightedNum == null) { throw new IllegalArgumentException("WeightedNum Must Be Non Null"); }
+        offer(weightedNum.getNumber(), weightedNum.getProbabilityOfSample());
+    }
+
+    /**
+     * Adds the sample of another partition of the stream, this reservoir then holds a sample of both partitions.
+     * The other reservoir is left as it was.
+     *
+     * @param other sampler fed a disjoint part of the stream
+     */
+    public void merge(WeightedReservoirSampler other) {
+        if (other == null) { throw new IllegalArgumentException("Other Must Be Non Null"); }
+        if (other == this) { throw new IllegalArgumentException("Cannot Merge Reservoir With Itself"); }
+
+        for (int i = 0; i < other.size; i++) {
+            if (size < k) { push(other.numbers[i], other.keys[i]); }
+            else if (other.keys[i] > keys[0]) { replaceRoot(other.numbers[i], other.keys[i]); }
+        }
+        // Skips are memoryless, so a fresh one for the new smallest key is as good as the old one
+        if (size == k) { nextJump(); }
+    }
+
+    /**
+     * @return the sampled numbers, most likely first. Any prefix is itself a weighted sample of that size
+     */
+    public int[] sample() {
+        final double[] heapKeys = Arrays.copyOf(keys, size);
+        final int[] heapNumbers = Arrays.copyOf(numbers, size);
+        final int[] sample = new int[size];
+
+        // Heap sort, the smallest key comes off first and goes to the back
+        for (int remaining = size; remaining > 0; remaining--) {
+            sample[remaining - 1] = heapNumbers[0];
+            siftDown(heapKeys, heapNumbers, remaining - 1, heapNumbers[remaining - 1], heapKeys[remaining - 1]);
+        }
+        return sample;
+    }
+
+    /**
+     * @return numbers in the reservoir, k once at least k numbers with weight were offered
+     */
+    public int size() { return size; }
+
+    public int getK() { return k; }
+
+    private void nextJump() {
+        // Weight to skip is exponential with rate -ln(smallest u), the chance per unit weight of beating it
+        weightToSkip = keys[0] < 0 ? Math.log(uniform()) / keys[0] : Double.POSITIVE_INFINITY;
+    }
+
+    // In (0, 1], so the log is finite
+    private double uniform() {
+        return 1.0 - random.nextDouble();
+    }
+
+    private void push(int number, double key) {
+        int child = size++;
+        while (child > 0) {
+            final int parent = (child - 1) >>> 1;
+            if (keys[parent] <= key) { break; }
+            keys[child] = keys[parent];
+            numbers[child] = numbers[parent];
+            child = parent;
+        }
+        keys[child] = key;
+        numbers[child] = number;
+    }
+
+    private void replaceRoot(int number, double key) {
+        siftDown(keys, numbers, size, number, key);
+    }
+
+    // Puts the entry at the root of a heap of the given size and moves it down to its place
+    private static void siftDown(double[] keys, int[] numbers, int size, int number, double key) {
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) { break; }
+            if (child + 1 < size && keys[child + 1] < keys[child]) { child++; }
+            if (key <= keys[child]) { break; }
+            keys[parent] = keys[child];
+            numbers[parent] = numbers[child];
+            parent = child;
+        }
+        if (size > 0) {
+            keys[parent] = key;
+            numbers[parent] = number;
+        }
+    }
+}
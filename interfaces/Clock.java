@@ -0,0 +1,80 @@
+package org.home.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Monotonic time source for throttlers, in nanoseconds from an arbitrary origin. Only differences are meaningful,
+ * so wall clock jumps (NTP, DST) never move a window.
+ * Trade off is resolution vs cost: system reads {@link System#nanoTime()} every time, coarse reads a field updated
+ * by a ticker thread, manual only moves when told to, for tests.
+ */
+public interface Clock {
+
+    long nanoTime();
+
+    static Clock system() { return SystemClock.INSTANCE; }
+
+    /**
+     * @param tickNanos resolution, reads can be up to this far behind
+     */
+    static CoarseClock coarse(long tickNanos) {
+        final CoarseClock clock = new CoarseClock(tickNanos);
+        clock.ticker.start();
+        return clock;
+    }
+
+    static ManualClock manual() { return new ManualClock(); }
+
+    static class SystemClock implements Clock {
+        private static final SystemClock INSTANCE = new SystemClock();
+
+        @Override
+        public long nanoTime() { return System.nanoTime(); }
+    }
+
+    // Built through coarse() so the ticker starts after the clock is fully constructed
+    static final class CoarseClock implements Clock, AutoCloseable {
+        private final long tickNanos;
+        private final Thread ticker;
+        private volatile long nanos = System.nanoTime();
+        private volatile boolean running = true;
+
+        private CoarseClock(long tickNanos) {
+            if (tickNanos <= 0) { throw new IllegalArgumentException("tickNanos must be greater than 0"); }
+            this.tickNanos = tickNanos;
+            this.ticker = new Thread(this::tick, "coarse-clock-ticker");
+            ticker.setDaemon(true);
+        }
+
+        @Override
+        public long nanoTime() { return nanos; }
+
+        private void tick() {
+            while (running) {
+                LockSupport.parkNanos(this, tickNanos);
+                nanos = System.nanoTime();
+            }
+        }
+
+        // Stops the ticker, time stands still afterwards
+        @Override
+        public void close() {
+            running = false;
+            LockSupport.unpark(ticker);
+        }
+    }
+
+    static class ManualClock implements Clock {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long nanoTime() { return nanos.get(); }
+
+        public void advance(long duration, TimeUnit unit) {
+            if (duration < 0) { throw new IllegalArgumentException("duration must not be negative"); }
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+}
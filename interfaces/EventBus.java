@@ -1,5 +1,6 @@
 package org.home.core;
 
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -11,6 +12,15 @@ public interface EventBus<T> {
 
     void addSubscriberForFilteredEvents(Class<? extends T> clazz, Consumer<T> subscriber, Predicate<T> filter);
 
+    // Subscriber gets batches of at most maxBatchSize events, a partial batch is handed over once it has waited maxLingerMillis.
+    // Buses that do not batch hand over every event as a batch of one
+    default void addBatchSubscriber(Class<? extends T> clazz, Consumer<List<T>> subscriber, int maxBatchSize, long maxLingerMillis) {
+        if (subscriber == null) { throw new IllegalArgumentException("Subscriber Must Be Non Null"); }
+        if (maxBatchSize <= 0) { throw new IllegalArgumentException("maxBatchSize must be greater than 0"); }
+        if (maxLingerMillis <= 0) { throw new IllegalArgumentException("maxLingerMillis must be greater than 0"); }
+        addSubscriber(clazz, event -> subscriber.accept(List.of(event)));
+    }
+
     static class FilteredEventSubscriber<T> {
         private final Consumer<T> consumer;
         private final Predicate<T> filter;
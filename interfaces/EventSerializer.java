@@ -0,0 +1,19 @@
+package org.home.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns events into bytes for a journal and back. Buffers are views onto the journal's mapped files, so nothing
+ * is copied on the way in or out, and a serializer must stay between the buffer's position and limit.
+ */
+public interface EventSerializer<T> {
+
+    // Exact number of bytes write will produce for the event
+    int sizeOf(T event);
+
+    // Writes exactly sizeOf(event) bytes from the buffer's position
+    void write(T event, ByteBuffer buffer);
+
+    // Buffer holds exactly one event, from position to limit
+    T read(ByteBuffer buffer);
+}
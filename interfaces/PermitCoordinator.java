@@ -0,0 +1,40 @@
+package org.home.core;
+
+/**
+ * Shared budget behind cluster throttling. Nodes lease blocks of permits and spend them locally, going back to the
+ * coordinator only when a lease runs out or expires, so the global limit costs one round trip per block instead
+ * of one per request. Implementations can be remote (a database, a cache, a service) or in process for tests.
+ */
+public interface PermitCoordinator {
+
+    /**
+     * @param permits wanted, the coordinator may grant fewer, down to 0 when the budget is spent
+     * @return the lease, its permits are only valid for its time to live
+     */
+    Lease lease(int permits);
+
+    /**
+     * Gives back permits a node did not spend, so other nodes can lease them while the lease's window lasts.
+     *
+     * @param lease
+     * @param unusedPermits
+     */
+    void release(Lease lease, int unusedPermits);
+
+    // Time to live is relative so node and coordinator clocks never have to agree
+    static class Lease {
+        private final long id;
+        private final int permits;
+        private final long timeToLiveNanos;
+
+        public Lease(long id, int permits, long timeToLiveNanos) {
+            this.id = id;
+            this.permits = permits;
+            this.timeToLiveNanos = timeToLiveNanos;
+        }
+
+        public long getId() { return id; }
+        public int getPermits() { return permits; }
+        public long getTimeToLiveNanos() { return timeToLiveNanos; }
+    }
+}
@@ -1,9 +1,23 @@
 package org.home.core;
 
+import java.util.Objects;
+import java.util.stream.IntStream;
+
 public interface ProbabilisticRandomGen {
 
     public int nextFromSample();
 
+    // Fills dest[off, off + len) with samples. Implementations should override with a loop that skips the virtual call
+    default void nextFromSample(int[] dest, int off, int len) {
+        Objects.checkFromIndexSize(off, len, dest.length);
+        for (int i = off; i < off + len; i++) { dest[i] = nextFromSample(); }
+    }
+
+    default IntStream samples(long n) {
+        if (n < 0) { throw new IllegalArgumentException("n must not be negative"); }
+        return IntStream.generate(this::nextFromSample).limit(n);
+    }
+
     static class NumAndProbability {
         private final int number;
         private final float probabilityOfSample;
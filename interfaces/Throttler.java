@@ -1,5 +1,7 @@
 package org.home.core;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 public interface Throttler<T> {
@@ -8,20 +10,47 @@ public interface Throttler<T> {
 
     void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber);
 
+    // Checks and consumes in one step, permits weigh a request by its cost. False if they do not fit in the window.
+    // Default so existing throttlers still compile, a check and a separate record cannot be made atomic here
+    default boolean tryAcquire(int permits) {
+        throw new UnsupportedOperationException("tryAcquire Not Supported By " + getClass().getName());
+    }
+
+    // Parks until the permits fit or the timeout passes. Default retries tryAcquire(permits) every millisecond
+    default boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!tryAcquire(permits)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) { return false; }
+            if (Thread.interrupted()) { throw new InterruptedException(); }
+            LockSupport.parkNanos(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        return true;
+    }
+
     enum ThrottleResult {
         PROCEED, DO_NOT_PROCEED
     }
 
+    // Timestamp is wall clock and informational only, throttlers stamp requests on arrival with their own Clock
     static class Event<T> {
         private T event;
         private long timestamp;
+        private int permits;
 
         public Event(T event) {
+            this(event, 1);
+        }
+
+        public Event(T event, int permits) {
             this.event = event;
-            timestamp = System.currentTimeMillis();;
+            this.permits = permits;
+            timestamp = System.currentTimeMillis();
         }
 
         public T get() { return event; }
         public long getTimestamp() { return timestamp; }
+        public int getPermits() { return permits; }
     }
 }
\ No newline at end of file
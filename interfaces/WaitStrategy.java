@@ -0,0 +1,49 @@
+package org.home.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides what a thread does while it waits on a lock-free structure (empty ring buffer, full ring buffer).
+ * Trade off is latency vs CPU usage: busy spin reacts fastest but burns a core, park is the cheapest on CPU.
+ */
+public interface WaitStrategy {
+
+    /**
+     * @param attempt number of consecutive unsuccessful attempts so far, starting at 0
+     */
+    void idle(int attempt);
+
+    static WaitStrategy busySpin() { return new BusySpinWaitStrategy(); }
+
+    static WaitStrategy yielding() { return new YieldingWaitStrategy(); }
+
+    static WaitStrategy parking(long parkNanos) { return new ParkingWaitStrategy(parkNanos); }
+
+    static class BusySpinWaitStrategy implements WaitStrategy {
+        @Override
+        public void idle(int attempt) { Thread.onSpinWait(); }
+    }
+
+    static class YieldingWaitStrategy implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+
+        // Spin for a short while first as the wait is usually short, then give up the core
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_TRIES) { Thread.onSpinWait(); }
+            else { Thread.yield(); }
+        }
+    }
+
+    static class ParkingWaitStrategy implements WaitStrategy {
+        private final long parkNanos;
+
+        public ParkingWaitStrategy(long parkNanos) {
+            if (parkNanos <= 0) { throw new IllegalArgumentException("parkNanos must be greater than 0"); }
+            this.parkNanos = parkNanos;
+        }
+
+        @Override
+        public void idle(int attempt) { LockSupport.parkNanos(parkNanos); }
+    }
+}
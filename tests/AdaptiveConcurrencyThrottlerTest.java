@@ -0,0 +1,152 @@
+package org.home.core.service;
+
+import org.home.core.Throttler;
+import org.home.core.service.AdaptiveConcurrencyThrottler.LimitAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdaptiveConcurrencyThrottlerTest {
+
+    private static final long timeoutMillis = 100;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyThrottler<String>(null, 10, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyThrottler<String>(aimd(), 10, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyThrottler<String>(aimd(), 200, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> LimitAlgorithm.aimd(1.5, timeoutMillis, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalArgumentException.class, () -> LimitAlgorithm.gradient(0.5, 100));
+        assertThrows(IllegalStateException.class, () -> new AdaptiveConcurrencyThrottler<String>(aimd(), 10, 1, 100).onIgnored(1));
+    }
+
+    @Test
+    public void itCanLimitRequestsInFlight() {
+        AdaptiveConcurrencyThrottler<String> throttler = new AdaptiveConcurrencyThrottler<>(aimd(), 5, 1, 100);
+
+        IntStream.range(0, 5).forEach(_ -> assertTrue(throttler.tryAcquire(1)));
+        assertFalse(throttler.tryAcquire(1));
+        assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, throttler.shouldProceed());
+
+        throttler.onIgnored(1);
+        assertEquals(4, throttler.getInFlight());
+        assertTrue(throttler.tryAcquire(1));
+    }
+
+    @Test
+    public void itCanGrowAimdLimitWhileInUseAndBackOffOnDrop() {
+        AdaptiveConcurrencyThrottler<String> throttler = new AdaptiveConcurrencyThrottler<>(aimd(), 10, 2, 12);
+
+        // Mostly idle, nothing learned
+        throttler.tryAcquire(1);
+        throttler.onSuccess(1, 1, TimeUnit.MILLISECONDS);
+        assertEquals(10, throttler.getLimit());
+
+        // Limit in use and fast, grows up to the max
+        for (int i = 0; i < 5; i++) {
+            throttler.tryAcquire(throttler.getLimit());
+            throttler.onSuccess(throttler.getLimit(), 1, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(12, throttler.getLimit());
+
+        // Every request in flight failing backs off once, not once per request
+        IntStream.range(0, 12).forEach(_ -> throttler.tryAcquire(1));
+        IntStream.range(0, 12).forEach(_ -> throttler.onDropped(1));
+        assertEquals(6, throttler.getLimit());
+
+        // Never below the min
+        for (int i = 0; i < 5; i++) {
+            throttler.tryAcquire(1);
+            throttler.onSuccess(1, 2 * timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(2, throttler.getLimit());
+    }
+
+    @Test
+    public void itCanShrinkGradientLimitWhenLatencyRises() {
+        AdaptiveConcurrencyThrottler<String> throttler = new AdaptiveConcurrencyThrottler<>(LimitAlgorithm.gradient(1.5, 10_000), 20, 1, 1000);
+
+        // Latency holds, limit grows
+        runRounds(throttler, 10, 1);
+        final int grown = throttler.getLimit();
+        assertTrue(grown > 20);
+
+        // Requests queueing at the backend, limit shrinks
+        runRounds(throttler, 10, 4);
+        assertTrue(throttler.getLimit() < grown);
+    }
+
+    @Test
+    public void itCanExposeLimitHistory() {
+        AdaptiveConcurrencyThrottler<String> throttler = new AdaptiveConcurrencyThrottler<>(aimd(), 4, 1, 100);
+
+        throttler.tryAcquire(4);
+        throttler.onSuccess(1, 1, TimeUnit.MILLISECONDS);
+        throttler.onDropped(1);
+
+        List<AdaptiveConcurrencyThrottler.LimitChange> history = throttler.getLimitHistory();
+        assertEquals(2, history.size());
+        assertEquals(4, history.get(0).getPreviousLimit());
+        assertEquals(5, history.get(0).getLimit());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), history.get(0).getLatencyNanos());
+        assertTrue(history.get(1).isDropped());
+        assertEquals(2, history.get(1).getLimit());
+    }
+
+    @Test
+    public void itCanWakeUpWaitersWhenRequestsComplete() throws InterruptedException {
+        AdaptiveConcurrencyThrottler<String> throttler = new AdaptiveConcurrencyThrottler<>(aimd(), 1, 1, 1);
+        AtomicInteger notified = new AtomicInteger();
+        assertTrue(throttler.tryAcquire(1));
+
+        throttler.notifyWhenCanProceed(_ -> notified.incrementAndGet());
+        assertEquals(0, notified.get());
+        throttler.onSuccess(1, 1, TimeUnit.MILLISECONDS);
+        assertEquals(1, notified.get());
+
+        // The waiter was handed the slot, it gives it back when its request is done
+        assertEquals(1, throttler.getInFlight());
+        throttler.onSuccess(1, 1, TimeUnit.MILLISECONDS);
+        assertTrue(throttler.tryAcquire(1));
+        assertFalse(throttler.tryAcquire(1, 20, TimeUnit.MILLISECONDS));
+        new Thread(() -> throttler.onSuccess(1, 1, TimeUnit.MILLISECONDS)).start();
+        assertTrue(throttler.tryAcquire(1, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void itCanReleaseOnlyAsManyWaitersAsFreeSlots() {
+        AdaptiveConcurrencyThrottler<String> throttler = new AdaptiveConcurrencyThrottler<>(aimd(), 4, 1, 4);
+        List<Integer> released = new CopyOnWriteArrayList<>();
+        IntStream.range(0, 4).forEach(_ -> assertTrue(throttler.tryAcquire(1)));
+
+        IntStream.range(0, 3).forEach(i -> throttler.notifyWhenCanProceed(_ -> released.add(i)));
+        throttler.onIgnored(1);
+        assertEquals(List.of(0), released);
+        assertEquals(4, throttler.getInFlight());
+
+        throttler.onIgnored(2);
+        assertEquals(List.of(0, 1, 2), released);
+    }
+
+    private static LimitAlgorithm aimd() {
+        return LimitAlgorithm.aimd(0.5, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Fills the limit and completes every request with the same latency
+    private static void runRounds(AdaptiveConcurrencyThrottler<String> throttler, int rounds, long latencyMillis) {
+        for (int round = 0; round < rounds; round++) {
+            int started = 0;
+            while (throttler.tryAcquire(1)) { started++; }
+            for (int i = 0; i < started; i++) { throttler.onSuccess(1, latencyMillis, TimeUnit.MILLISECONDS); }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.home.core.service;
+
+import org.home.core.ProbabilisticRandomGen;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AliasTableTest {
+
+    private static final int samples = 1_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.build(new double[0], AliasTable.Precision.FIXED_32));
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.build(new double[]{0.5, -0.5}, AliasTable.Precision.FIXED_32));
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.build(new double[]{0, 0}, AliasTable.Precision.FIXED_32));
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.build(new int[]{1}, new double[]{0.5, 0.5}, AliasTable.Precision.FIXED_32));
+        assertThrows(NullPointerException.class, () -> AliasTable.build(new double[]{1}, null));
+    }
+
+    @Test
+    public void itCanSampleOutcomesByWeight() {
+        AliasTable table = AliasTable.build(getMockWeightedNums(), AliasTable.Precision.FIXED_16);
+
+        int[] counts = new int[7];
+        for (int i = 0; i < samples; i++) { counts[table.nextFromSample()]++; }
+
+        for (ProbabilisticRandomGen.NumAndProbability weightedNum : getMockWeightedNums()) {
+            assertEquals(weightedNum.getProbabilityOfSample(), counts[weightedNum.getNumber()] / (double) samples, 0.01);
+        }
+    }
+
+    @Test
+    public void itCanEncodeLargeDistributionBuiltInPieces() {
+        // Several pieces, a tenth of the outcomes holding most of the weight
+        double[] weights = skewedWeights(1_000_000);
+        double total = 0;
+        for (double weight : weights) { total += weight; }
+
+        for (AliasTable.Precision precision : AliasTable.Precision.values()) {
+            double[] probabilities = AliasTable.build(weights, precision).outcomeProbabilities();
+            double tolerance = precision == AliasTable.Precision.FIXED_32 ? 1e-7 : 1e-3;
+            for (int i = 0; i < weights.length; i++) {
+                assertEquals(weights[i] / total, probabilities[i], tolerance / weights.length);
+            }
+        }
+    }
+
+    @Test
+    public void itCanBuildSameTableEveryTime() {
+        double[] weights = skewedWeights(200_000);
+
+        assertArrayEquals(AliasTable.build(weights, AliasTable.Precision.FIXED_32).outcomeProbabilities(),
+                AliasTable.build(weights, AliasTable.Precision.FIXED_32).outcomeProbabilities(), 0);
+    }
+
+    @Test
+    public void itCanSaveAndMapTableBack() throws IOException {
+        AliasTable table = AliasTable.build(skewedWeights(200_000), AliasTable.Precision.FIXED_32);
+        Path file = directory.resolve("weights.alias");
+        table.save(file);
+
+        AliasTable mapped = AliasTable.load(file);
+        assertEquals(table.size(), mapped.size());
+        assertEquals(AliasTable.Precision.FIXED_32, mapped.getPrecision());
+
+        SplittableRandom first = new SplittableRandom(3);
+        SplittableRandom second = new SplittableRandom(3);
+        for (int i = 0; i < samples; i++) { assertEquals(table.nextFromSample(first), mapped.nextFromSample(second)); }
+    }
+
+    @Test
+    public void itCanRejectFileThatIsNotATable() throws IOException {
+        Path file = directory.resolve("junk.alias");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> AliasTable.load(file));
+    }
+
+    private static double[] skewedWeights(int size) {
+        SplittableRandom random = new SplittableRandom(size);
+        double[] weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            weights[i] = i % 17 == 0 ? 0 : i < size / 10 ? 50 * random.nextDouble() : random.nextDouble();
+        }
+        return weights;
+    }
+
+    private static List<ProbabilisticRandomGen.NumAndProbability> getMockWeightedNums() {
+        return List.of(
+                new ProbabilisticRandomGen.NumAndProbability(1, 0.1f),
+                new ProbabilisticRandomGen.NumAndProbability(2, 0.3f),
+                new ProbabilisticRandomGen.NumAndProbability(3, 0.2f),
+                new ProbabilisticRandomGen.NumAndProbability(4, 0.2f),
+                new ProbabilisticRandomGen.NumAndProbability(5, 0.15f),
+                new ProbabilisticRandomGen.NumAndProbability(6, 0.05f)
+        );
+    }
+}
@@ -0,0 +1,84 @@
+package org.home.core.service;
+
+import org.home.core.service.MultiThreadedEventBus.OverflowPolicy;
+import org.home.core.service.MultiThreadedEventBus.PublishResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BoundedEventQueueTest {
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedEventQueue<String>(0, OverflowPolicy.FAIL));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedEventQueue<String>(1, OverflowPolicy.COALESCE));
+    }
+
+    @Test
+    public void itCanRejectWhenFull() throws InterruptedException {
+        BoundedEventQueue<String> queue = new BoundedEventQueue<>(1, OverflowPolicy.FAIL);
+
+        assertEquals(PublishResult.ACCEPTED, queue.publish("a", true));
+        assertEquals(PublishResult.REJECTED, queue.publish("b", true));
+        assertEquals("a", queue.take());
+    }
+
+    @Test
+    public void itCanDropNewestWhenFull() throws InterruptedException {
+        BoundedEventQueue<String> queue = new BoundedEventQueue<>(1, OverflowPolicy.DROP_NEWEST);
+
+        queue.publish("a", true);
+        assertEquals(PublishResult.DROPPED_NEWEST, queue.publish("b", true));
+        assertEquals("a", queue.take());
+    }
+
+    @Test
+    public void itCanDropOldestWhenFull() throws InterruptedException {
+        BoundedEventQueue<String> queue = new BoundedEventQueue<>(2, OverflowPolicy.DROP_OLDEST);
+
+        queue.publish("a", true);
+        queue.publish("b", true);
+        assertEquals(PublishResult.DROPPED_OLDEST, queue.publish("c", true));
+        assertEquals("b", queue.take());
+        assertEquals("c", queue.take());
+    }
+
+    @Test
+    public void itCanNotBlockWhenNotAllowed() throws InterruptedException {
+        BoundedEventQueue<String> queue = new BoundedEventQueue<>(1, OverflowPolicy.BLOCK);
+
+        queue.publish("a", true);
+        assertEquals(PublishResult.REJECTED, queue.publish("b", false));
+    }
+
+    @Test
+    public void itCanCoalesceByEventClass() throws InterruptedException {
+        CoalescingEventQueue<Object> queue = new CoalescingEventQueue<>(2);
+
+        assertEquals(PublishResult.ACCEPTED, queue.publish("a", false));
+        assertEquals(PublishResult.ACCEPTED, queue.publish(1, false));
+        assertEquals(PublishResult.COALESCED, queue.publish("b", false));
+        assertEquals(PublishResult.REJECTED, queue.publish(1L, false));
+
+        assertEquals("b", queue.take());
+        assertEquals(1, queue.take());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void itCanConflateByKeyDeliveringEachPendingValueOnce() throws InterruptedException {
+        CoalescingEventQueue<String> queue = new CoalescingEventQueue<>(0, event -> event.charAt(0));
+
+        queue.publish("a1", true);
+        queue.publish("b1", true);
+        assertEquals(PublishResult.COALESCED, queue.publish("a2", true));
+        assertEquals(PublishResult.COALESCED, queue.publish("a3", true));
+
+        assertEquals("a3", queue.take());
+        assertEquals(PublishResult.ACCEPTED, queue.publish("a4", true));
+        assertEquals("b1", queue.take());
+        assertEquals("a4", queue.take());
+        assertEquals(0, queue.size());
+    }
+}
@@ -0,0 +1,59 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ClockTest {
+
+    private static final int maxRequests = 5;
+    private static final long windowTime = 1000;
+
+    @Test
+    public void itCanOnlyMoveManualClockForward() {
+        Clock.ManualClock clock = Clock.manual();
+        assertEquals(0, clock.nanoTime());
+
+        clock.advance(2, TimeUnit.MILLISECONDS);
+        assertEquals(2_000_000, clock.nanoTime());
+        assertThrows(IllegalArgumentException.class, () -> clock.advance(-1, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void itCanTickCoarseClock() throws InterruptedException {
+        assertThrows(IllegalArgumentException.class, () -> Clock.coarse(0));
+
+        try (Clock.CoarseClock clock = Clock.coarse(TimeUnit.MILLISECONDS.toNanos(1))) {
+            final long start = clock.nanoTime();
+            Thread.sleep(20);
+            assertTrue(clock.nanoTime() > start);
+        }
+    }
+
+    @Test
+    public void itCanRunEveryAlgorithmOnManualClockWithoutSleeping() {
+        for (ThrottlerFactory.Algorithm algorithm : ThrottlerFactory.Algorithm.values()) {
+            Clock.ManualClock clock = Clock.manual();
+            Throttler<String> throttler = ThrottlerFactory.create(algorithm, maxRequests, windowTime, clock);
+
+            IntStream.range(0, maxRequests).forEach(_ -> assertTrue(algorithm.name(), throttler.tryAcquire(1)));
+            assertFalse(algorithm.name(), throttler.tryAcquire(1));
+
+            // Half a window refills the bucket shapers, windows have not slid past any request yet
+            clock.advance(windowTime / 2, TimeUnit.MILLISECONDS);
+            assertEquals(algorithm.name(), algorithm == ThrottlerFactory.Algorithm.TOKEN_BUCKET
+                    || algorithm == ThrottlerFactory.Algorithm.GCRA, throttler.tryAcquire(1));
+
+            clock.advance(windowTime, TimeUnit.MILLISECONDS);
+            assertTrue(algorithm.name(), throttler.tryAcquire(1));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.PermitCoordinator;
+import org.home.core.Throttler;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ClusterThrottlerTest {
+
+    private static final int maxRequests = 100;
+    private static final long windowTime = 1000;
+    private static final int leaseSize = 10;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new ClusterThrottler<String>(null, leaseSize));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterThrottler<String>(mock(PermitCoordinator.class), 0));
+        assertThrows(IllegalArgumentException.class, () -> new InProcessPermitCoordinator(0, windowTime, windowTime));
+    }
+
+    @Test
+    public void itCanEnforceGlobalLimitAcrossNodes() {
+        Clock.ManualClock clock = Clock.manual();
+        InProcessPermitCoordinator coordinator = new InProcessPermitCoordinator(maxRequests, windowTime, windowTime, clock);
+        List<ClusterThrottler<String>> nodes = List.of(new ClusterThrottler<>(coordinator, leaseSize, clock),
+                new ClusterThrottler<>(coordinator, leaseSize, clock), new ClusterThrottler<>(coordinator, leaseSize, clock));
+        AtomicInteger acquired = new AtomicInteger();
+
+        IntStream.range(0, 1000).forEach(i -> { if (nodes.get(i % 3).tryAcquire(1)) { acquired.incrementAndGet(); } });
+        assertEquals(maxRequests, acquired.get());
+        assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, nodes.get(0).shouldProceed());
+
+        clock.advance(windowTime, TimeUnit.MILLISECONDS);
+        assertTrue(nodes.get(0).tryAcquire(1));
+    }
+
+    @Test
+    public void itCanSpendLeaseLocallyWithoutCallingCoordinator() {
+        PermitCoordinator coordinator = mock(PermitCoordinator.class);
+        when(coordinator.lease(anyInt())).thenReturn(new PermitCoordinator.Lease(0, leaseSize, TimeUnit.SECONDS.toNanos(10)));
+        ClusterThrottler<String> throttler = new ClusterThrottler<>(coordinator, leaseSize);
+
+        IntStream.range(0, leaseSize).forEach(_ -> assertTrue(throttler.tryAcquire(1)));
+        verify(coordinator, times(1)).lease(leaseSize);
+    }
+
+    @Test
+    public void itCanReturnUnusedPermitsToOtherNodes() {
+        Clock.ManualClock clock = Clock.manual();
+        InProcessPermitCoordinator coordinator = new InProcessPermitCoordinator(maxRequests, windowTime, 100, clock);
+        ClusterThrottler<String> first = new ClusterThrottler<>(coordinator, maxRequests, clock);
+        ClusterThrottler<String> second = new ClusterThrottler<>(coordinator, maxRequests, clock);
+
+        assertTrue(first.tryAcquire(1));
+        assertFalse(second.tryAcquire(1));
+
+        // Lease expires before the window, renewing hands the 99 unused permits back first
+        clock.advance(100, TimeUnit.MILLISECONDS);
+        assertTrue(first.tryAcquire(1));
+        first.quit();
+        assertEquals(maxRequests - 2, coordinator.available());
+        assertTrue(second.tryAcquire(maxRequests - 2));
+    }
+
+    @Test
+    public void itCanFailClosedWhenCoordinatorIsDown() {
+        PermitCoordinator coordinator = mock(PermitCoordinator.class);
+        when(coordinator.lease(anyInt())).thenThrow(new IllegalStateException("Coordinator Unavailable"));
+
+        assertFalse(new ClusterThrottler<String>(coordinator, leaseSize).tryAcquire(1));
+    }
+
+    @Test
+    public void itCanBackOffWhileCoordinatorIsDown() {
+        Clock.ManualClock clock = Clock.manual();
+        PermitCoordinator coordinator = mock(PermitCoordinator.class);
+        when(coordinator.lease(anyInt())).thenThrow(new IllegalStateException("Coordinator Unavailable"));
+        ClusterThrottler<String> throttler = new ClusterThrottler<>(coordinator, leaseSize, clock);
+
+        IntStream.range(0, 100).forEach(_ -> assertFalse(throttler.tryAcquire(1)));
+        verify(coordinator, times(1)).lease(anyInt());
+
+        // Backoff doubles, 1ms after the first failure then 2ms after the second
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertFalse(throttler.tryAcquire(1));
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertFalse(throttler.tryAcquire(1));
+        verify(coordinator, times(2)).lease(anyInt());
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertFalse(throttler.tryAcquire(1));
+        verify(coordinator, times(3)).lease(anyInt());
+    }
+
+    @Test
+    public void itCanNotifyWhenNextWindowStarts() throws InterruptedException {
+        InProcessPermitCoordinator coordinator = new InProcessPermitCoordinator(leaseSize, 200, 200);
+        ClusterThrottler<String> throttler = new ClusterThrottler<>(coordinator, leaseSize);
+        assertTrue(throttler.tryAcquire(leaseSize));
+        CountDownLatch latch = new CountDownLatch(1);
+
+        throttler.notifyWhenCanProceed(_ -> latch.countDown());
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        throttler.quit();
+    }
+
+    @Test
+    public void itCanNotAdmitMoreThanLimitAcrossThreads() throws InterruptedException {
+        InProcessPermitCoordinator coordinator = new InProcessPermitCoordinator(maxRequests, 60_000, 60_000);
+        ClusterThrottler<String> first = new ClusterThrottler<>(coordinator, leaseSize);
+        ClusterThrottler<String> second = new ClusterThrottler<>(coordinator, leaseSize);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        AtomicInteger acquired = new AtomicInteger();
+
+        IntStream.range(0, 1000).forEach(i -> executorService.submit(() -> {
+            if ((i % 2 == 0 ? first : second).tryAcquire(1)) { acquired.incrementAndGet(); }
+        }));
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(maxRequests, acquired.get());
+    }
+}
@@ -0,0 +1,41 @@
+package org.home.core.service;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DispatchTableTest {
+
+    @Test
+    public void itCanResolveSupertypesAndInterfaces() {
+        DispatchTable<String> table = new DispatchTable<>(String[]::new);
+        table.add(String.class, "string");
+        table.add(CharSequence.class, "charSequence");
+        table.add(Object.class, "object");
+        table.add(Integer.class, "integer");
+
+        // Concrete class first, then superclass, then interfaces
+        assertArrayEquals(new String[]{"string", "object", "charSequence"}, table.get(String.class));
+
+        List<String> builderSubscribers = List.of(table.get(StringBuilder.class));
+        assertEquals(2, builderSubscribers.size());
+        assertTrue(builderSubscribers.containsAll(List.of("object", "charSequence")));
+    }
+
+    @Test
+    public void itCanReuseCachedArrayUntilSubscriptionsChange() {
+        DispatchTable<String> table = new DispatchTable<>(String[]::new);
+        table.add(Object.class, "object");
+
+        String[] first = table.get(String.class);
+        assertSame(first, table.get(String.class));
+
+        table.add(String.class, "string");
+        assertArrayEquals(new String[]{"string", "object"}, table.get(String.class));
+    }
+}
@@ -0,0 +1,101 @@
+package org.home.core.service;
+
+import org.home.core.ProbabilisticRandomGen;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DynamicWeightedRandomGenTest {
+
+    private static final int samples = 1_000_000;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        DynamicWeightedRandomGen gen = new DynamicWeightedRandomGen(getMockWeightedNums());
+
+        assertThrows(IllegalArgumentException.class, () -> gen.add(1, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> gen.add(7, -1));
+        assertThrows(IllegalArgumentException.class, () -> gen.updateWeight(7, 0.5));
+        assertThrows(IllegalStateException.class, () -> new DynamicWeightedRandomGen().nextFromSample());
+    }
+
+    @Test
+    public void itCanSampleInitialWeights() {
+        DynamicWeightedRandomGen gen = new DynamicWeightedRandomGen(getMockWeightedNums());
+        int[] counts = sample(gen);
+
+        for (ProbabilisticRandomGen.NumAndProbability weightedNum : getMockWeightedNums()) {
+            assertEquals(weightedNum.getProbabilityOfSample(), counts[weightedNum.getNumber()] / (double) samples, 0.01);
+        }
+    }
+
+    @Test
+    public void itCanUpdateAddAndRemoveWeights() {
+        DynamicWeightedRandomGen gen = new DynamicWeightedRandomGen(getMockWeightedNums());
+
+        gen.updateWeight(6, 0.55);
+        assertTrue(gen.remove(2));
+        assertFalse(gen.remove(2));
+        gen.add(50, 0.3);
+
+        // Total is now 1.5
+        int[] counts = sample(gen);
+        assertEquals(0, counts[2]);
+        assertEquals(0.55 / 1.5, counts[6] / (double) samples, 0.01);
+        assertEquals(0.3 / 1.5, counts[50] / (double) samples, 0.01);
+        assertEquals(6, gen.size());
+    }
+
+    @Test
+    public void itCanSampleWhileWeightsChange() throws InterruptedException {
+        DynamicWeightedRandomGen gen = new DynamicWeightedRandomGen();
+        // Odd numbers never have weight, sampling one means a torn read got through
+        for (int number = 0; number < 100; number++) { gen.add(number, number % 2 == 0 ? 1 : 0); }
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger oddSamples = new AtomicInteger();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; !stop.get(); i++) {
+                final int even = (i % 50) * 2;
+                gen.remove(even);
+                gen.add(even, 1 + i % 3);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < samples; i++) {
+                if (gen.nextFromSample() % 2 == 1) { oddSamples.incrementAndGet(); }
+            }
+        });
+        writer.start();
+        reader.start();
+        reader.join();
+        stop.set(true);
+        writer.join();
+
+        assertEquals(0, oddSamples.get());
+    }
+
+    private static int[] sample(DynamicWeightedRandomGen gen) {
+        int[] counts = new int[100];
+        for (int i = 0; i < samples; i++) { counts[gen.nextFromSample()]++; }
+        return counts;
+    }
+
+    private static List<ProbabilisticRandomGen.NumAndProbability> getMockWeightedNums() {
+        return List.of(
+                new ProbabilisticRandomGen.NumAndProbability(1, 0.1f),
+                new ProbabilisticRandomGen.NumAndProbability(2, 0.3f),
+                new ProbabilisticRandomGen.NumAndProbability(3, 0.2f),
+                new ProbabilisticRandomGen.NumAndProbability(4, 0.2f),
+                new ProbabilisticRandomGen.NumAndProbability(5, 0.15f),
+                new ProbabilisticRandomGen.NumAndProbability(6, 0.05f)
+        );
+    }
+}
@@ -0,0 +1,177 @@
+package org.home.core.service;
+
+import org.home.core.EventSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EventJournalTest {
+
+    // Small segments so a handful of events rolls several times
+    private static final int segmentBytes = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new EventJournal<>(directory, null, segmentBytes, Long.MAX_VALUE, Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new EventJournal<>(directory, new StringSerializer(), 4, Long.MAX_VALUE, Long.MAX_VALUE));
+
+        try (EventJournal<String> journal = newJournal(Long.MAX_VALUE)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append("x".repeat(segmentBytes)));
+        }
+    }
+
+    @Test
+    public void itCanReplayFromAnyOffsetAcrossSegments() throws IOException {
+        try (EventJournal<String> journal = newJournal(Long.MAX_VALUE)) {
+            List<Long> offsets = new ArrayList<>();
+            IntStream.range(0, 20).forEach(i -> offsets.add(journal.append("Event" + i)));
+
+            assertEquals(events(0, 20), readAll(journal, 0));
+            assertEquals(events(7, 20), readAll(journal, offsets.get(7)));
+        }
+    }
+
+    @Test
+    public void itCanPickUpWhereItLeftOffAfterReopening() throws IOException {
+        try (EventJournal<String> journal = newJournal(Long.MAX_VALUE)) {
+            IntStream.range(0, 10).forEach(i -> journal.append("Event" + i));
+        }
+
+        try (EventJournal<String> journal = newJournal(Long.MAX_VALUE)) {
+            IntStream.range(10, 20).forEach(i -> journal.append("Event" + i));
+            assertEquals(events(0, 20), readAll(journal, 0));
+        }
+    }
+
+    @Test
+    public void itCanDropOldestSegmentsOverRetention() throws IOException {
+        try (EventJournal<String> journal = newJournal(segmentBytes * 3)) {
+            IntStream.range(0, 40).forEach(i -> journal.append("Event" + i));
+
+            List<String> retained = readAll(journal, 0);
+            assertTrue(journal.startOffset() > 0);
+            assertTrue(retained.size() < 40);
+            assertEquals(events(40 - retained.size(), 40), retained);
+        }
+    }
+
+    @Test
+    public void itCanDropSegmentsPastRetentionAgeWithoutRolling() throws IOException, InterruptedException {
+        try (EventJournal<String> journal = new EventJournal<>(directory, new StringSerializer(), segmentBytes, Long.MAX_VALUE, 50)) {
+            // 10 byte records, six fill the first segment and the seventh rolls
+            IntStream.range(0, 7).forEach(i -> journal.append("Event" + i));
+            assertEquals(0, journal.startOffset());
+
+            Thread.sleep(100);
+            // Fits in the active segment, so only the age check can drop the first one
+            journal.append("Event7");
+            assertEquals(segmentBytes, journal.startOffset());
+            assertEquals(events(6, 8), readAll(journal, 0));
+        }
+    }
+
+    @Test
+    public void itCanSkipSegmentFilesNotNamedByOffset() throws IOException {
+        Files.createFile(directory.resolve("notes.segment"));
+        try (EventJournal<String> journal = newJournal(Long.MAX_VALUE)) {
+            IntStream.range(0, 10).forEach(i -> journal.append("Event" + i));
+        }
+
+        try (EventJournal<String> journal = newJournal(Long.MAX_VALUE)) {
+            assertEquals(events(0, 10), readAll(journal, 0));
+        }
+        assertTrue(Files.exists(directory.resolve("notes.segment")));
+    }
+
+    @Test
+    public void itCanWakeWaitingReaderOnAppend() throws IOException, InterruptedException {
+        try (EventJournal<String> journal = newJournal(Long.MAX_VALUE)) {
+            CountDownLatch woken = new CountDownLatch(1);
+            Thread reader = new Thread(() -> {
+                try {
+                    if (journal.awaitAppend(0, 10, TimeUnit.SECONDS)) { woken.countDown(); }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            reader.start();
+
+            // Long before the reader's own timeout
+            Thread.sleep(50);
+            journal.append("Event0");
+            assertTrue(woken.await(1, TimeUnit.SECONDS));
+            reader.join();
+        }
+    }
+
+    @Test
+    public void itCanReplayToLateSubscriberThenFollowBus() throws IOException, InterruptedException {
+        try (EventJournal<String> journal = new EventJournal<>(directory, new StringSerializer(), 1 << 16, Long.MAX_VALUE, Long.MAX_VALUE)) {
+            MultiThreadedEventBus<String> journaledBus = MultiThreadedEventBus.<String>builder().threadPoolSize(2).journal(journal).build();
+            IntStream.range(0, 100).forEach(i -> journaledBus.publishEvent("Event" + i));
+
+            List<String> replayed = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(150);
+            JournalSubscription<String> subscription = journaledBus.addSubscriber(String.class, event -> {
+                replayed.add(event);
+                latch.countDown();
+            }, 0);
+            IntStream.range(100, 150).forEach(i -> journaledBus.publishEvent("Event" + i));
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(events(0, 150), replayed);
+            // The offset moves past an event once the subscriber returns, just after the latch counted down
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (subscription.getOffset() != journal.endOffset() && System.nanoTime() < deadline) { Thread.sleep(1); }
+            assertEquals(journal.endOffset(), subscription.getOffset());
+            journaledBus.shutdown();
+        }
+    }
+
+    private EventJournal<String> newJournal(long retentionBytes) throws IOException {
+        return new EventJournal<>(directory, new StringSerializer(), segmentBytes, retentionBytes, Long.MAX_VALUE);
+    }
+
+    private static List<String> readAll(EventJournal<String> journal, long offset) {
+        List<String> events = new ArrayList<>();
+        journal.read(offset, Integer.MAX_VALUE, (event, _) -> events.add(event));
+        return events;
+    }
+
+    private static List<String> events(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "Event" + i).toList();
+    }
+
+    private static class StringSerializer implements EventSerializer<String> {
+        @Override
+        public int sizeOf(String event) { return event.getBytes(StandardCharsets.UTF_8).length; }
+
+        @Override
+        public void write(String event, ByteBuffer buffer) { buffer.put(event.getBytes(StandardCharsets.UTF_8)); }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.home.core.service;
+
+import org.home.core.Throttler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KeyedThrottlerTest {
+
+    private static final int maxRequests = 5;
+    private static final long windowTime = 1000;
+
+    private KeyedThrottler<String> throttler;
+
+    @AfterEach
+    public void quit() {
+        if (throttler != null) { throttler.quit(); }
+    }
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new KeyedThrottler<String>(0, windowTime, 10, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new KeyedThrottler<String>(maxRequests, windowTime, 0, 1000));
+    }
+
+    @Test
+    public void itCanLimitKeysIndependently() {
+        throttler = new KeyedThrottler<>(maxRequests, windowTime, 100, 60_000);
+
+        IntStream.range(0, maxRequests).forEach(_ -> assertTrue(throttler.tryAcquire("tenantA")));
+        assertFalse(throttler.tryAcquire("tenantA"));
+        assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, throttler.shouldProceed("tenantA"));
+
+        assertTrue(throttler.tryAcquire("tenantB"));
+        assertEquals(Throttler.ThrottleResult.PROCEED, throttler.shouldProceed("tenantC"));
+    }
+
+    @Test
+    public void itCanCapTrackedKeys() {
+        // Odd, so never a multiple of the stripe count, and every stripe ends up full
+        throttler = new KeyedThrottler<>(maxRequests, windowTime, 99, 60_000);
+
+        IntStream.range(0, 10_000).forEach(i -> throttler.tryAcquire("tenant" + i));
+        assertEquals(99, throttler.size());
+    }
+
+    @Test
+    public void itCanKeepLimitingKeysThatShareAStripe() {
+        // Fewer keys than stripes per core, and hash codes 0 and 16 share a stripe whenever there are 16 or fewer
+        KeyedThrottler<Integer> smallThrottler = new KeyedThrottler<>(maxRequests, windowTime, 4, 60_000);
+
+        try {
+            IntStream.range(0, maxRequests).forEach(_ -> {
+                assertTrue(smallThrottler.tryAcquire(0));
+                assertTrue(smallThrottler.tryAcquire(16));
+            });
+            assertFalse(smallThrottler.tryAcquire(0));
+            assertFalse(smallThrottler.tryAcquire(16));
+        } finally {
+            smallThrottler.quit();
+        }
+    }
+
+    @Test
+    public void itCanEvictIdleKeys() throws InterruptedException {
+        throttler = new KeyedThrottler<>(maxRequests, windowTime, 100, 50);
+
+        throttler.tryAcquire("tenantA");
+        Thread.sleep(200);
+        assertEquals(0, throttler.size());
+    }
+}
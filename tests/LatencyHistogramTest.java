@@ -0,0 +1,40 @@
+package org.home.core.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void itCanRecordExactSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) { histogram.record(i); }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10, snapshot.getCount());
+        assertEquals(5, snapshot.getValueAtPercentile(50));
+        assertEquals(10, snapshot.getValueAtPercentile(100));
+        assertEquals(5.5, snapshot.getMeanNanos(), 0.0001);
+    }
+
+    @Test
+    public void itCanBucketLargeValuesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = {1_000, 50_000, 1_000_000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            long lowerBound = LatencyHistogram.bucketLowerBound(LatencyHistogram.bucketIndex(value));
+            assertTrue(lowerBound <= value);
+            assertTrue(value - lowerBound <= value / 16);
+            histogram.record(value);
+        }
+
+        assertEquals(Long.MAX_VALUE, histogram.snapshot().getMaxNanos());
+    }
+
+    @Test
+    public void itCanReturnZeroWhenEmpty() {
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+    }
+}
@@ -1,14 +1,20 @@
 package org.home.core.service;
 
 import org.home.core.EventBus;
+import org.home.core.WaitStrategy;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 public class MultiThreadedEventBusTest {
@@ -26,6 +32,7 @@ public class MultiThreadedEventBusTest {
     @After
     public void quit() {
         executorService.shutdownNow();
+        eventBus.shutdown();
     }
 
     @Test
@@ -43,6 +50,276 @@ public class MultiThreadedEventBusTest {
         assertEquals(testEvent, resp);
     }
 
+    @Test
+    public void itCanPublishThroughRingBuffer() throws ExecutionException, InterruptedException, TimeoutException {
+        MultiThreadedEventBus<String> ringBufferBus = new MultiThreadedEventBus<>(2, 1024, WaitStrategy.parking(1000));
+        CompletableFuture<String> future = new CompletableFuture<>();
+
+        try {
+            ringBufferBus.addSubscriber(String.class, future::complete);
+            ringBufferBus.publishEvent("itCanPublishThroughRingBuffer");
+
+            assertEquals("itCanPublishThroughRingBuffer", future.get(5, TimeUnit.SECONDS));
+        } finally {
+            ringBufferBus.shutdown();
+        }
+    }
+
+    @Test
+    public void itCanKeepOrderWithinShardedLane() throws InterruptedException {
+        MultiThreadedEventBus<Object> shardedBus = MultiThreadedEventBus.builder().sharded(4).inlineDelivery().build();
+        final int events = 1000;
+        CountDownLatch latch = new CountDownLatch(events * 2);
+        List<String> received = new CopyOnWriteArrayList<>();
+
+        try {
+            shardedBus.addSubscriber(String.class, event -> { received.add((String) event); latch.countDown(); });
+            shardedBus.addSubscriber(Integer.class, _ -> latch.countDown());
+            for (int i = 0; i < events; i++) {
+                shardedBus.publishEvent("Event" + i);
+                shardedBus.publishEvent(i);
+            }
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < events; i++) { assertEquals("Event" + i, received.get(i)); }
+        } finally {
+            shardedBus.shutdown();
+        }
+    }
+
+    @Test
+    public void itCanDeliverOnDispatchThreadOnlyWhenAskedTo() throws ExecutionException, InterruptedException, TimeoutException {
+        assertThrows(IllegalStateException.class,
+                () -> MultiThreadedEventBus.<String>builder().inlineDelivery().virtualThreads(0).build());
+
+        for (boolean inline : new boolean[]{false, true}) {
+            MultiThreadedEventBus.Builder<String> builder = MultiThreadedEventBus.<String>builder()
+                    .threadPoolSize(2)
+                    .ringBuffer(1024, WaitStrategy.parking(1000));
+            MultiThreadedEventBus<String> bus = (inline ? builder.inlineDelivery() : builder).build();
+            CompletableFuture<String> thread = new CompletableFuture<>();
+
+            try {
+                bus.addSubscriber(String.class, _ -> thread.complete(Thread.currentThread().getName()));
+                bus.publishEvent("itCanDeliverOnDispatchThreadOnlyWhenAskedTo");
+
+                assertEquals(inline, thread.get(5, TimeUnit.SECONDS).startsWith("event-bus-dispatch-"));
+            } finally {
+                bus.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void itCanShedLoadWhenBoundedQueueIsFull() {
+        MultiThreadedEventBus<String> boundedBus = MultiThreadedEventBus.<String>builder()
+                .threadPoolSize(2)
+                .bounded(1, MultiThreadedEventBus.OverflowPolicy.FAIL)
+                .build();
+        CountDownLatch blockDispatch = new CountDownLatch(1);
+        boundedBus.addSubscriber(String.class, _ -> {
+            try { blockDispatch.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        });
+
+        // Subscriber, pool queue and event queue each hold one event, the rest must be refused without blocking
+        try {
+            boolean rejected = false;
+            for (int i = 0; i < 100 && !rejected; i++) { rejected = !boundedBus.tryPublish("Event" + i); }
+
+            assertTrue(rejected);
+        } finally {
+            blockDispatch.countDown();
+            boundedBus.shutdown();
+        }
+    }
+
+    @Test
+    public void itCanReportInterruptWhileBlockedOnFullQueue() {
+        MultiThreadedEventBus<String> boundedBus = MultiThreadedEventBus.<String>builder()
+                .threadPoolSize(1)
+                .bounded(1, MultiThreadedEventBus.OverflowPolicy.BLOCK)
+                .build();
+        CountDownLatch blockDispatch = new CountDownLatch(1);
+        boundedBus.addSubscriber(String.class, _ -> {
+            try { blockDispatch.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        });
+
+        // Once the subscriber, pool queue and event queue are full the next publish waits and sees the interrupt
+        Thread.currentThread().interrupt();
+        try {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+                for (int i = 0; i < 100; i++) { boundedBus.publishEvent("Event" + i); }
+            });
+            assertEquals("Interrupted While Publishing", e.getMessage());
+            assertTrue(Thread.interrupted());
+        } finally {
+            blockDispatch.countDown();
+            boundedBus.shutdown();
+        }
+    }
+
+    @Test
+    public void itCanDeliverBatches() throws InterruptedException {
+        final int events = 25;
+        CountDownLatch latch = new CountDownLatch(events);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        eventBus.addBatchSubscriber(String.class, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(_ -> latch.countDown());
+        }, 10, 50);
+        for (int i = 0; i < events; i++) { eventBus.publishEvent("Event" + i); }
+
+        // Two full batches, the last five arrive once they have lingered
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+        assertEquals(events, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void itCanDeliverBatchesOneAtATimeInOrder() throws InterruptedException {
+        MultiThreadedEventBus<Integer> pooledBus = MultiThreadedEventBus.<Integer>builder().threadPoolSize(4).build();
+        final int events = 200;
+        CountDownLatch latch = new CountDownLatch(events);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        // Every event cuts a batch, so four pool threads could each be handed one at once
+        pooledBus.addBatchSubscriber(Integer.class, batch -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try { Thread.sleep(1); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            received.addAll(batch);
+            running.decrementAndGet();
+            batch.forEach(_ -> latch.countDown());
+        }, 1, 50);
+        for (int i = 0; i < events; i++) { pooledBus.publishEvent(i); }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        pooledBus.shutdown();
+        assertEquals(1, maxRunning.get());
+        assertEquals(IntStream.range(0, events).boxed().toList(), received);
+    }
+
+    @Test
+    public void itCanLimitConcurrencyOnVirtualThreads() throws InterruptedException {
+        MultiThreadedEventBus<String> virtualBus = MultiThreadedEventBus.<String>builder().virtualThreads(2).build();
+        final int events = 50;
+        CountDownLatch latch = new CountDownLatch(events);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        try {
+            virtualBus.addSubscriber(String.class, _ -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try { Thread.sleep(5); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                running.decrementAndGet();
+                latch.countDown();
+            });
+            for (int i = 0; i < events; i++) { virtualBus.publishEvent("Event" + i); }
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(maxRunning.get() <= 2);
+        } finally {
+            virtualBus.shutdown();
+        }
+    }
+
+    @Test
+    public void itCanNotifySubscribersOfSupertypes() throws ExecutionException, InterruptedException, TimeoutException {
+        MultiThreadedEventBus<Object> objectBus = new MultiThreadedEventBus<>(2);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+
+        try {
+            objectBus.addSubscriber(CharSequence.class, future::complete);
+            objectBus.publishEvent(1);
+            objectBus.publishEvent("itCanNotifySubscribersOfSupertypes");
+
+            assertEquals("itCanNotifySubscribersOfSupertypes", future.get(5, TimeUnit.SECONDS));
+        } finally {
+            objectBus.shutdown();
+        }
+    }
+
+    @Test
+    public void itCanConflateToLatestValuePerKey() throws InterruptedException {
+        MultiThreadedEventBus<String> conflatingBus = MultiThreadedEventBus.<String>builder()
+                .threadPoolSize(2)
+                .conflating(event -> event.split(":")[0])
+                .inlineDelivery()
+                .build();
+        final int events = 1000;
+        CountDownLatch firstDelivery = new CountDownLatch(1);
+        CountDownLatch releaseSubscriber = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(2);
+        ConcurrentHashMap<String, List<Integer>> delivered = new ConcurrentHashMap<>();
+
+        conflatingBus.addSubscriber(String.class, event -> {
+            firstDelivery.countDown();
+            try { releaseSubscriber.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            String[] keyAndSequence = event.split(":");
+            int sequence = Integer.parseInt(keyAndSequence[1]);
+            delivered.computeIfAbsent(keyAndSequence[0], _ -> new CopyOnWriteArrayList<>()).add(sequence);
+            if (sequence == events - 1) { latch.countDown(); }
+        });
+
+        // Hold the subscriber on the first value, everything published meanwhile has to coalesce to one per key
+        conflatingBus.publishEvent("EUR:0");
+        assertTrue(firstDelivery.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < events; i++) {
+            conflatingBus.publishEvent("EUR:" + i);
+            conflatingBus.publishEvent("USD:" + i);
+        }
+        releaseSubscriber.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        conflatingBus.shutdown();
+        assertEquals(List.of(0, events - 1), delivered.get("EUR"));
+        assertEquals(List.of(events - 1), delivered.get("USD"));
+    }
+
+    @Test
+    public void itCanReportSubscriberMetrics() {
+        MultiThreadedEventBus<String> meteredBus = MultiThreadedEventBus.<String>builder().threadPoolSize(2).metrics().build();
+        final int events = 10;
+
+        meteredBus.addSubscriber(String.class, event -> {
+            if (event.endsWith("0")) { throw new IllegalStateException("itCanReportSubscriberMetrics"); }
+        });
+        for (int i = 0; i < events; i++) { meteredBus.publishEvent("Event" + i); }
+
+        // Errors and execution times are recorded after the subscriber returns, shutdown waits for every call to finish
+        meteredBus.shutdown();
+
+        EventBusMetrics.Snapshot snapshot = meteredBus.getMetrics().snapshot();
+        assertEquals(events, snapshot.getPublishedCount());
+        assertEquals(1, snapshot.getSubscribers().size());
+        assertEquals(1, snapshot.getSubscribers().get(0).getErrorCount());
+        assertEquals(events, snapshot.getSubscribers().get(0).getExecutionTime().getCount());
+    }
+
+    @Test
+    public void itCanDeliverPublishedEventsAndStopOnShutdown() {
+        assertShutsDownAfterDelivering(MultiThreadedEventBus.<String>builder().threadPoolSize(2).build());
+        assertShutsDownAfterDelivering(MultiThreadedEventBus.<String>builder().sharded(4).build());
+        assertShutsDownAfterDelivering(new MultiThreadedEventBus<>(2, 1024, WaitStrategy.parking(1000)));
+        assertShutsDownAfterDelivering(MultiThreadedEventBus.<String>builder().virtualThreads(2).build());
+        assertShutsDownAfterDelivering(MultiThreadedEventBus.<String>builder().sharded(4).virtualThreads(0).build());
+    }
+
+    // Dispatch loops block on empty queues, shutdown has to wake them rather than sit out its 60 second grace period
+    private static void assertShutsDownAfterDelivering(MultiThreadedEventBus<String> bus) {
+        final int events = 1000;
+        AtomicInteger delivered = new AtomicInteger();
+        bus.addSubscriber(String.class, _ -> delivered.incrementAndGet());
+        for (int i = 0; i < events; i++) { bus.publishEvent("Event" + i); }
+
+        final long start = System.nanoTime();
+        bus.shutdown();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(events, delivered.get());
+    }
+
     @Test
     public void itCanNotifySubscribersMatchingFilter() {
 
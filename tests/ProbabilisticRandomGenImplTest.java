@@ -4,12 +4,17 @@ package org.home.core.service;
 import org.home.core.ProbabilisticRandomGen;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
@@ -51,6 +56,76 @@ public class ProbabilisticRandomGenImplTest {
         assertEquals(result, 3);
     }
 
+    @Test
+    public void itCanSampleDistributionWithPerThreadGenerators() throws InterruptedException {
+        ProbabilisticRandomGenImpl gen = ProbabilisticRandomGenImpl.perThread(getMockWeightedNums(), 42);
+        ProbabilisticRandomGenImpl genWithDefault = new ProbabilisticRandomGenImpl(getMockWeightedNums(), null);
+        AtomicIntegerArray counts = new AtomicIntegerArray(7);
+        int samplesPerThread = 250_000;
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < samplesPerThread; i++) {
+                    counts.incrementAndGet(gen.nextFromSample());
+                    counts.incrementAndGet(genWithDefault.nextFromSample());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) { thread.join(); }
+
+        double total = samplesPerThread * threads.length * 2;
+        for (ProbabilisticRandomGen.NumAndProbability weightedNum : getMockWeightedNums()) {
+            assertEquals(weightedNum.getProbabilityOfSample(), counts.get(weightedNum.getNumber()) / total, 0.01);
+        }
+    }
+
+    @Test
+    public void itCanAlwaysSampleSingleOutcome() {
+        ProbabilisticRandomGenImpl gen = ProbabilisticRandomGenImpl.perThread(
+                List.of(new ProbabilisticRandomGen.NumAndProbability(7, 1.0f)), 42);
+
+        for (int i = 0; i < 1000; i++) { assertEquals(7, gen.nextFromSample()); }
+    }
+
+    @Test
+    public void itCanFillArrayWithSamples() {
+        ProbabilisticRandomGenImpl gen = new ProbabilisticRandomGenImpl(getMockWeightedNums(), null);
+        int[] dest = new int[102];
+
+        gen.nextFromSample(dest, 1, 100);
+
+        assertEquals(0, dest[0]);
+        assertEquals(0, dest[101]);
+        assertTrue(Arrays.stream(dest, 1, 101).allMatch(number -> number >= 1 && number <= 6));
+        assertThrows(IndexOutOfBoundsException.class, () -> gen.nextFromSample(dest, 10, 100));
+    }
+
+    @Test
+    public void itCanStreamSamplesInParallel() {
+        ProbabilisticRandomGenImpl gen = new ProbabilisticRandomGenImpl(getMockWeightedNums(), null);
+        int n = 1_000_000;
+
+        assertEquals(n, gen.samples(n).parallel().count());
+        assertEquals(0.3, gen.samples(n).parallel().filter(number -> number == 2).count() / (double) n, 0.01);
+    }
+
+    @Test
+    public void itCanReproduceParallelFillFromSeed() {
+        ProbabilisticRandomGenImpl gen = new ProbabilisticRandomGenImpl(getMockWeightedNums(), null);
+        int[] first = new int[1_000_000];
+        int[] second = new int[1_000_000];
+        int[] otherSeed = new int[1_000_000];
+
+        gen.parallelFill(first, 0, first.length, 42);
+        gen.parallelFill(second, 0, second.length, 42);
+        gen.parallelFill(otherSeed, 0, otherSeed.length, 43);
+
+        assertArrayEquals(first, second);
+        assertFalse(Arrays.equals(first, otherSeed));
+    }
+
 
     private static List<ProbabilisticRandomGen.NumAndProbability> getMockWeightedNums() {
         return List.of(
@@ -0,0 +1,72 @@
+package org.home.core.service;
+
+import org.home.core.WaitStrategy;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RingBufferTest {
+
+    @Test
+    public void itCanThrowExceptionForInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<String>(3, WaitStrategy.busySpin()));
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<String>(0, WaitStrategy.busySpin()));
+    }
+
+    @Test
+    public void itCanRejectWhenFull() {
+        RingBuffer<String> ringBuffer = new RingBuffer<>(2, WaitStrategy.busySpin());
+
+        assertTrue(ringBuffer.offer("a"));
+        assertTrue(ringBuffer.offer("b"));
+        assertFalse(ringBuffer.offer("c"));
+        assertEquals(2, ringBuffer.size());
+
+        assertEquals("a", ringBuffer.poll());
+        assertTrue(ringBuffer.offer("c"));
+        assertEquals("b", ringBuffer.poll());
+        assertEquals("c", ringBuffer.poll());
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    public void itCanKeepOrderPerPublisherWithManyPublishers() throws InterruptedException {
+        final int publishers = 4;
+        final int perPublisher = 10_000;
+        RingBuffer<long[]> ringBuffer = new RingBuffer<>(64, WaitStrategy.yielding());
+        ExecutorService executorService = Executors.newFixedThreadPool(publishers);
+        CountDownLatch latch = new CountDownLatch(publishers);
+
+        for (int p = 0; p < publishers; p++) {
+            final int publisher = p;
+            executorService.submit(() -> {
+                try {
+                    for (int i = 0; i < perPublisher; i++) { ringBuffer.put(new long[]{publisher, i}); }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        long[] lastSeen = new long[]{-1, -1, -1, -1};
+        for (int i = 0; i < publishers * perPublisher; i++) {
+            long[] event = ringBuffer.take();
+            assertEquals(lastSeen[(int) event[0]] + 1, event[1]);
+            lastSeen[(int) event[0]] = event[1];
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,111 @@
+package org.home.core.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class SingleThreadedEventBusTest {
+
+    @Test
+    public void itCanDeliverReentrantEventsDepthFirst() {
+        SingleThreadedEventBus<String> eventBus = new SingleThreadedEventBus<>(SingleThreadedEventBus.ReentrancyPolicy.DEPTH_FIRST, 1, false);
+        List<String> delivered = publishTree(eventBus);
+
+        assertEquals(List.of("A", "B", "D", "C"), delivered);
+    }
+
+    @Test
+    public void itCanDeliverReentrantEventsBreadthFirst() {
+        SingleThreadedEventBus<String> eventBus = new SingleThreadedEventBus<>(SingleThreadedEventBus.ReentrancyPolicy.BREADTH_FIRST, 1, false);
+        List<String> delivered = publishTree(eventBus);
+
+        assertEquals(List.of("A", "B", "C", "D"), delivered);
+    }
+
+    @Test
+    public void itCanDeliverEveryEventToAllSubscribersBeforeReentrantOnes() {
+        SingleThreadedEventBus<String> eventBus = new SingleThreadedEventBus<>();
+        List<String> delivered = new ArrayList<>();
+        eventBus.addSubscriber(String.class, event -> {
+            delivered.add("first:" + event);
+            if (event.equals("A")) { eventBus.publishEvent("B"); }
+        });
+        eventBus.addSubscriber(String.class, event -> delivered.add("second:" + event));
+
+        eventBus.publishEvent("A");
+
+        assertEquals(List.of("first:A", "second:A", "first:B", "second:B"), delivered);
+    }
+
+    @Test
+    public void itCanAddSubscriberDuringDispatch() {
+        SingleThreadedEventBus<String> eventBus = new SingleThreadedEventBus<>();
+        AtomicInteger lateDeliveries = new AtomicInteger();
+        eventBus.addSubscriber(String.class, event -> {
+            if (event.equals("register")) { eventBus.addSubscriber(String.class, _ -> lateDeliveries.incrementAndGet()); }
+        });
+
+        eventBus.publishEvent("register");
+        assertEquals(0, lateDeliveries.get());
+
+        eventBus.publishEvent("next");
+        assertEquals(1, lateDeliveries.get());
+    }
+
+    @Test
+    public void itCanPublishLongReentrantChainWithoutGrowingTheStack() {
+        SingleThreadedEventBus<Integer> eventBus = new SingleThreadedEventBus<>(SingleThreadedEventBus.ReentrancyPolicy.DEPTH_FIRST, 1, false);
+        AtomicInteger delivered = new AtomicInteger();
+        eventBus.addSubscriber(Integer.class, event -> {
+            delivered.incrementAndGet();
+            if (event > 0) { eventBus.publishEvent(event - 1); }
+        });
+
+        eventBus.publishEvent(1_000_000);
+
+        assertEquals(1_000_001, delivered.get());
+    }
+
+    @Test
+    public void itCanKeepDeliveringAfterSubscriberThrows() {
+        SingleThreadedEventBus<String> eventBus = new SingleThreadedEventBus<>();
+        List<String> delivered = new ArrayList<>();
+        eventBus.addSubscriber(String.class, event -> {
+            if (event.equals("A")) {
+                eventBus.publishEvent("B");
+                throw new IllegalStateException("Subscriber Failed");
+            }
+        });
+        eventBus.addSubscriber(String.class, delivered::add);
+
+        eventBus.publishEvent("A");
+        eventBus.publishEvent("C");
+
+        assertEquals(List.of("A", "B", "C"), delivered);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itCanRejectNonPositivePendingCapacity() {
+        new SingleThreadedEventBus<String>(SingleThreadedEventBus.ReentrancyPolicy.BREADTH_FIRST, 0, false);
+    }
+
+    // A publishes B and C, B publishes D
+    private static List<String> publishTree(SingleThreadedEventBus<String> eventBus) {
+        List<String> delivered = new ArrayList<>();
+        eventBus.addSubscriber(String.class, event -> {
+            delivered.add(event);
+            if (event.equals("A")) {
+                eventBus.publishEvent("B");
+                eventBus.publishEvent("C");
+            } else if (event.equals("B")) {
+                eventBus.publishEvent("D");
+            }
+        });
+        eventBus.publishEvent("A");
+        return delivered;
+    }
+}
@@ -0,0 +1,151 @@
+package org.home.core.service;
+
+import org.home.core.Clock;
+import org.home.core.Throttler;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SlidingWindowThrottlerTest {
+
+    private static final int maxRequests = 5;
+    private static final long windowTime = 200;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowThrottler<String>(0, windowTime, SlidingWindowThrottler.Mode.PRECISE, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowThrottler<String>(maxRequests, windowTime, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowThrottler<String>(maxRequests, windowTime, SlidingWindowThrottler.Mode.PRECISE, 0));
+    }
+
+    @Test
+    public void itCanThrottleAtLimitInPreciseMode() {
+        SlidingWindowThrottler<String> throttler = new SlidingWindowThrottler<>(maxRequests, windowTime, SlidingWindowThrottler.Mode.PRECISE, 10);
+
+        IntStream.range(0, maxRequests - 1).forEach(_ -> throttler.addRequest());
+        assertEquals(Throttler.ThrottleResult.PROCEED, throttler.shouldProceed());
+
+        throttler.addRequest();
+        assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, throttler.shouldProceed());
+    }
+
+    @Test
+    public void itCanThrottleAtLimitInApproximateMode() {
+        SlidingWindowThrottler<String> throttler = new SlidingWindowThrottler<>(maxRequests, windowTime, SlidingWindowThrottler.Mode.APPROXIMATE, 0);
+
+        IntStream.range(0, maxRequests).forEach(i -> throttler.addRequest(new Throttler.Event<>("Event" + i)));
+        assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, throttler.shouldProceed());
+    }
+
+    @Test
+    public void itCanNotifyOnceWindowSlides() throws InterruptedException {
+        SlidingWindowThrottler<String> throttler = new SlidingWindowThrottler<>(maxRequests, windowTime, SlidingWindowThrottler.Mode.PRECISE, 10);
+        IntStream.range(0, maxRequests).forEach(_ -> throttler.addRequest());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        throttler.notifyWhenCanProceed(result -> {
+            assertEquals(Throttler.ThrottleResult.PROCEED, result);
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(windowTime * 3, TimeUnit.MILLISECONDS));
+        throttler.quit();
+    }
+
+    @Test
+    public void itCanReleaseOnlyAsManyWaitersAsFreePermits() {
+        Clock.ManualClock clock = Clock.manual();
+        SlidingWindowThrottler<String> throttler = new SlidingWindowThrottler<>(maxRequests, 10_000, SlidingWindowThrottler.Mode.PRECISE, 10, clock);
+        List<Integer> released = new CopyOnWriteArrayList<>();
+
+        assertTrue(throttler.tryAcquire(1));
+        clock.advance(1, TimeUnit.SECONDS);
+        assertTrue(throttler.tryAcquire(maxRequests - 1));
+
+        // Waiters that do not acquire straight away, each one released must still have a permit of its own
+        IntStream.range(0, 3).forEach(i -> throttler.notifyWhenCanProceed(_ -> released.add(i)));
+        assertEquals(List.of(), released);
+
+        // First bucket leaves the window, one permit frees up
+        clock.advance(9, TimeUnit.SECONDS);
+        throttler.notifyWhenCanProceed(_ -> released.add(3));
+        assertEquals(List.of(0), released);
+        throttler.quit();
+    }
+
+    @Test
+    public void itCanReleaseWaitersPartwayThroughWindowInApproximateMode() throws InterruptedException {
+        Clock.ManualClock clock = Clock.manual();
+        SlidingWindowThrottler<String> throttler = new SlidingWindowThrottler<>(maxRequests, 1000, SlidingWindowThrottler.Mode.APPROXIMATE, 0, clock);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        // Full previous window, its weight decays by one permit every fifth of the window
+        assertTrue(throttler.tryAcquire(maxRequests));
+        clock.advance(1, TimeUnit.SECONDS);
+        throttler.notifyWhenCanProceed(_ -> latch.countDown());
+        assertEquals(1, latch.getCount());
+
+        // Recheck is due a fifth of a window in, not at the next rollover a whole window away
+        clock.advance(500, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(600, TimeUnit.MILLISECONDS));
+        throttler.quit();
+    }
+
+    @Test
+    public void itCanKeepNewerLapWhenCallerWasDelayed() {
+        AtomicLong now = new AtomicLong();
+        AtomicBoolean delayNextCaller = new AtomicBoolean();
+        AtomicReference<SlidingWindowThrottler<String>> throttler = new AtomicReference<>();
+        // The delayed caller reads the time, then a whole lap passes and the same bucket fills before it records
+        Clock clock = () -> {
+            if (!delayNextCaller.compareAndSet(true, false)) { return now.get(); }
+            final long stale = now.getAndAdd(TimeUnit.SECONDS.toNanos(10));
+            assertTrue(throttler.get().tryAcquire(maxRequests));
+            return stale;
+        };
+        throttler.set(new SlidingWindowThrottler<>(maxRequests, 10_000, SlidingWindowThrottler.Mode.PRECISE, 10, clock));
+
+        delayNextCaller.set(true);
+        assertFalse(throttler.get().tryAcquire(1));
+        assertFalse(throttler.get().tryAcquire(1));
+    }
+
+    @Test
+    public void itCanNotAdmitMoreThanLimitAcrossThreads() throws InterruptedException {
+        SlidingWindowThrottler<String> throttler = new SlidingWindowThrottler<>(100, 10_000, SlidingWindowThrottler.Mode.PRECISE, 10);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        AtomicInteger acquired = new AtomicInteger();
+
+        IntStream.range(0, 1000).forEach(_ -> executorService.submit(() -> {
+            if (throttler.tryAcquire(1)) { acquired.incrementAndGet(); }
+        }));
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertTrue(acquired.get() <= 100);
+    }
+
+    @Test
+    public void itCanWaitForPermitsToFree() throws InterruptedException {
+        SlidingWindowThrottler<String> throttler = new SlidingWindowThrottler<>(maxRequests, windowTime, SlidingWindowThrottler.Mode.PRECISE, 10);
+        assertTrue(throttler.tryAcquire(maxRequests));
+
+        assertFalse(throttler.tryAcquire(1, 5, TimeUnit.MILLISECONDS));
+        assertTrue(throttler.tryAcquire(1, windowTime * 2, TimeUnit.MILLISECONDS));
+    }
+}
@@ -1,31 +1,43 @@
 package org.home.core.service;
 
+import org.home.core.Clock;
 import org.home.core.Throttler;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.ArgumentCaptor;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 
 public class ThrottlerImplTest {
 
     private static final int maxRequests = 5;
     private static final long windowTime = 1000;
     private static final int threads = 1;
-    private static final int schedulerFreq = 100;
 
     private ThrottlerImpl<String> throttler;
     private Consumer<Throttler.ThrottleResult> subscriber;
 
     @BeforeEach
     public void setUp() {
-        throttler = new ThrottlerImpl<>(maxRequests, windowTime, threads, schedulerFreq);
+        throttler = new ThrottlerImpl<>(maxRequests, windowTime, threads);
         subscriber = mock(Consumer.class);
         System.out.println("Initialized Throttler " + (throttler != null));
     }
@@ -43,27 +55,108 @@ public class ThrottlerImplTest {
     }
 
     @Test
-    public void itCanNotifySubscribersToProceed() throws InterruptedException {
-        CountDownLatch latch = new CountDownLatch(1);
-
-        Consumer<Throttler.ThrottleResult> notificationSubscriber = _ -> {
-            try {
-                ArgumentCaptor<Throttler.ThrottleResult> captor = ArgumentCaptor.forClass(Throttler.ThrottleResult.class);
-                captor.capture();
-                assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, captor.getValue());
-            } finally {
-                latch.countDown();
-            }
+    public void itCanNotifySubscribersToProceed() {
+        IntStream.range(0, maxRequests).forEach(i -> throttler.addRequest(new Throttler.Event<>("Capture Me" + i)));
+        throttler.addRequest(new Throttler.Event<>("Should not be captured"));
+
+        // Window is full, so the subscriber waits for it to slide instead of being called straight away
+        throttler.notifyWhenCanProceed(subscriber);
+        verify(subscriber, never()).accept(any());
+
+        ArgumentCaptor<Throttler.ThrottleResult> captor = ArgumentCaptor.forClass(Throttler.ThrottleResult.class);
+        verify(subscriber, timeout(windowTime * 2)).accept(captor.capture());
+        assertEquals(Throttler.ThrottleResult.PROCEED, captor.getValue());
+    }
+
+    @Test
+    public void itCanAcquireWeightedPermitsUpToLimit() {
+        assertTrue(throttler.tryAcquire(3));
+        assertTrue(throttler.tryAcquire(2));
+        assertFalse(throttler.tryAcquire(1));
+    }
+
+    @Test
+    public void itCanNotAdmitMoreThanLimitAcrossThreads() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        AtomicInteger acquired = new AtomicInteger();
+
+        IntStream.range(0, 100).forEach(_ -> executorService.submit(() -> {
+            if (throttler.tryAcquire(1)) { acquired.incrementAndGet(); }
+        }));
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(maxRequests, acquired.get());
+    }
+
+    @Test
+    public void itCanWaitForPermitsToFree() throws InterruptedException {
+        assertTrue(throttler.tryAcquire(maxRequests));
+
+        assertFalse(throttler.tryAcquire(1, 10, TimeUnit.MILLISECONDS));
+        assertTrue(throttler.tryAcquire(1, windowTime * 2, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void itCanReleaseWaitersInOrderUpToFreePermits() throws InterruptedException {
+        assertTrue(throttler.tryAcquire(maxRequests - 1));
+        List<Integer> released = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+
+        // One permit free, so only the first waiter goes now and takes it. The rest wait for the window to slide
+        throttler.notifyWhenCanProceed(_ -> { released.add(1); throttler.tryAcquire(1); latch.countDown(); });
+        throttler.notifyWhenCanProceed(_ -> { released.add(2); latch.countDown(); });
+        throttler.notifyWhenCanProceed(_ -> { released.add(3); latch.countDown(); });
+        assertEquals(List.of(1), released);
+
+        assertTrue(latch.await(windowTime * 2, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(1, 2, 3), released);
+    }
+
+    @Test
+    public void itCanSlideSubMillisecondWindowOnManualClock() {
+        Clock.ManualClock clock = Clock.manual();
+        ThrottlerImpl<String> fastThrottler = new ThrottlerImpl<>(maxRequests, 500, TimeUnit.MICROSECONDS, threads, clock);
+
+        assertTrue(fastThrottler.tryAcquire(maxRequests));
+        assertFalse(fastThrottler.tryAcquire(1));
+
+        clock.advance(500, TimeUnit.MICROSECONDS);
+        assertFalse(fastThrottler.tryAcquire(1));
+
+        clock.advance(1, TimeUnit.MICROSECONDS);
+        assertTrue(fastThrottler.tryAcquire(1));
+        fastThrottler.quit();
+    }
+
+    @Test
+    public void itCanKeepThrottlersWithoutTryAcquireCompiling() throws InterruptedException {
+        // Written against the interface as it was before tryAcquire
+        Throttler<String> legacy = new Throttler<>() {
+            @Override
+            public ThrottleResult shouldProceed() { return ThrottleResult.PROCEED; }
+
+            @Override
+            public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) { subscriber.accept(ThrottleResult.PROCEED); }
         };
 
-        throttler.notifyWhenCanProceed(notificationSubscriber);
+        assertThrows(UnsupportedOperationException.class, () -> legacy.tryAcquire(1));
+        assertThrows(UnsupportedOperationException.class, () -> legacy.tryAcquire(1, 1, TimeUnit.MILLISECONDS));
 
-        IntStream.range(0, maxRequests).forEach(i -> throttler.addRequest(new Throttler.Event<>("Capture Me" + i)));
-        throttler.addRequest(new Throttler.Event<>("Should not be captured"));
+        // The timed default retries the plain one until it succeeds
+        AtomicInteger attempts = new AtomicInteger();
+        Throttler<String> acquiring = new Throttler<>() {
+            @Override
+            public ThrottleResult shouldProceed() { return ThrottleResult.PROCEED; }
 
-        // Wait for the notification to be processed
-        latch.await(schedulerFreq * 2, TimeUnit.MILLISECONDS);
+            @Override
+            public void notifyWhenCanProceed(Consumer<ThrottleResult> subscriber) { subscriber.accept(ThrottleResult.PROCEED); }
 
+            @Override
+            public boolean tryAcquire(int permits) { return attempts.incrementAndGet() == 3; }
+        };
+        assertTrue(acquiring.tryAcquire(1, 1, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
     }
 
     //ToDo Test Methods for illegal arguments. More indepth threaded testing
@@ -0,0 +1,108 @@
+package org.home.core.service;
+
+import org.home.core.Throttler;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenBucketAndGcraThrottlerTest {
+
+    private static final int maxRequests = 5;
+    private static final long windowTime = 200;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketThrottler<String>(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketThrottler<String>(maxRequests, 0));
+        assertThrows(IllegalArgumentException.class, () -> new GcraThrottler<String>(0, windowTime, maxRequests));
+        assertThrows(IllegalArgumentException.class, () -> new GcraThrottler<String>(maxRequests, windowTime, 0));
+        assertThrows(IllegalArgumentException.class, () -> ThrottlerFactory.create(null, maxRequests, windowTime));
+        assertThrows(IllegalArgumentException.class, () -> new GcraThrottler<String>(maxRequests, windowTime, maxRequests).tryAcquire(maxRequests + 1));
+    }
+
+    @Test
+    public void itCanAllowBurstThenThrottleWithTokenBucket() {
+        Throttler<String> throttler = ThrottlerFactory.tokenBucket(maxRequests, 1);
+
+        IntStream.range(0, maxRequests).forEach(_ -> assertTrue(throttler.tryAcquire(1)));
+        assertFalse(throttler.tryAcquire(1));
+        assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, throttler.shouldProceed());
+    }
+
+    @Test
+    public void itCanAllowBurstThenThrottleWithGcra() {
+        Throttler<String> throttler = ThrottlerFactory.gcra(1, 1000, maxRequests);
+
+        assertTrue(throttler.tryAcquire(2));
+        assertTrue(throttler.tryAcquire(3));
+        assertFalse(throttler.tryAcquire(1));
+        assertEquals(Throttler.ThrottleResult.DO_NOT_PROCEED, throttler.shouldProceed());
+    }
+
+    @Test
+    public void itCanRefillOverTime() throws InterruptedException {
+        for (ThrottlerFactory.Algorithm algorithm : new ThrottlerFactory.Algorithm[] {
+                ThrottlerFactory.Algorithm.TOKEN_BUCKET, ThrottlerFactory.Algorithm.GCRA }) {
+            Throttler<String> throttler = ThrottlerFactory.create(algorithm, maxRequests, windowTime);
+            IntStream.range(0, maxRequests).forEach(_ -> throttler.tryAcquire(1));
+            assertFalse(throttler.tryAcquire(1));
+
+            // One request's worth of window
+            Thread.sleep(windowTime / maxRequests + 10);
+            assertTrue(algorithm.name(), throttler.tryAcquire(1));
+        }
+    }
+
+    @Test
+    public void itCanNotifyWhenTokenIsAvailable() throws InterruptedException {
+        for (ThrottlerFactory.Algorithm algorithm : new ThrottlerFactory.Algorithm[] {
+                ThrottlerFactory.Algorithm.TOKEN_BUCKET, ThrottlerFactory.Algorithm.GCRA }) {
+            Throttler<String> throttler = ThrottlerFactory.create(algorithm, maxRequests, windowTime);
+            IntStream.range(0, maxRequests).forEach(_ -> throttler.tryAcquire(1));
+            CountDownLatch latch = new CountDownLatch(1);
+
+            throttler.notifyWhenCanProceed(result -> {
+                assertEquals(Throttler.ThrottleResult.PROCEED, result);
+                latch.countDown();
+            });
+
+            assertTrue(algorithm.name(), latch.await(windowTime * 2, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void itCanNotAdmitMoreThanBurstAcrossThreads() throws InterruptedException {
+        for (ThrottlerFactory.Algorithm algorithm : ThrottlerFactory.Algorithm.values()) {
+            Throttler<String> throttler = ThrottlerFactory.create(algorithm, 100, 60_000);
+            ExecutorService executorService = Executors.newFixedThreadPool(4);
+            AtomicInteger acquired = new AtomicInteger();
+
+            IntStream.range(0, 1000).forEach(_ -> executorService.submit(() -> {
+                if (throttler.tryAcquire(1)) { acquired.incrementAndGet(); }
+            }));
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+            assertTrue(algorithm.name(), acquired.get() <= 101);
+        }
+    }
+
+    @Test
+    public void itCanWaitForPermitsToRefill() throws InterruptedException {
+        Throttler<String> throttler = ThrottlerFactory.create(ThrottlerFactory.Algorithm.GCRA, maxRequests, windowTime);
+        IntStream.range(0, maxRequests).forEach(_ -> throttler.tryAcquire(1));
+
+        assertFalse(throttler.tryAcquire(2, 1, TimeUnit.MILLISECONDS));
+        assertTrue(throttler.tryAcquire(2, windowTime * 2, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,113 @@
+package org.home.core.service;
+
+import org.home.core.ProbabilisticRandomGen;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WeightedReservoirSamplerTest {
+
+    private static final int trials = 200_000;
+
+    @Test
+    public void itCanThrowExceptionForInvalidInput() {
+        WeightedReservoirSampler sampler = new WeightedReservoirSampler(2);
+
+        assertThrows(IllegalArgumentException.class, () -> new WeightedReservoirSampler(0));
+        assertThrows(IllegalArgumentException.class, () -> sampler.offer(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> sampler.offer(1, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> sampler.offer(1, Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> sampler.merge(sampler));
+    }
+
+    @Test
+    public void itCanKeepEveryNumberWhenStreamIsShorterThanK() {
+        WeightedReservoirSampler sampler = new WeightedReservoirSampler(10, 1L);
+        getMockWeightedNums().forEach(sampler::offer);
+        sampler.offer(99, 0);
+
+        int[] sample = sampler.sample();
+        Arrays.sort(sample);
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6}, sample);
+    }
+
+    @Test
+    public void itCanSampleSingleNumberByWeight() {
+        double[] counts = new double[7];
+        SplittableRandom seeds = new SplittableRandom(7);
+        for (int i = 0; i < trials; i++) {
+            WeightedReservoirSampler sampler = new WeightedReservoirSampler(1, seeds.nextLong());
+            getMockWeightedNums().forEach(sampler::offer);
+            counts[sampler.sample()[0]]++;
+        }
+
+        for (ProbabilisticRandomGen.NumAndProbability weightedNum : getMockWeightedNums()) {
+            assertEquals(weightedNum.getProbabilityOfSample(), counts[weightedNum.getNumber()] / trials, 0.01);
+        }
+    }
+
+    @Test
+    public void itCanSampleWithoutReplacementFromLongStream() {
+        double[] weights = new double[50];
+        for (int i = 0; i < weights.length; i++) { weights[i] = i % 7 + 0.5; }
+
+        double[] counts = new double[weights.length];
+        SplittableRandom seeds = new SplittableRandom(11);
+        for (int i = 0; i < trials; i++) {
+            WeightedReservoirSampler sampler = new WeightedReservoirSampler(2, seeds.nextLong());
+            for (int number = 0; number < weights.length; number++) { sampler.offer(number, weights[number]); }
+            for (int number : sampler.sample()) { counts[number]++; }
+        }
+
+        assertInclusionProbabilities(weights, counts);
+    }
+
+    @Test
+    public void itCanMergeReservoirsOfPartitionedStream() {
+        double[] weights = new double[50];
+        for (int i = 0; i < weights.length; i++) { weights[i] = i % 7 + 0.5; }
+
+        double[] counts = new double[weights.length];
+        SplittableRandom seeds = new SplittableRandom(13);
+        for (int i = 0; i < trials; i++) {
+            WeightedReservoirSampler first = new WeightedReservoirSampler(2, seeds.nextLong());
+            WeightedReservoirSampler second = new WeightedReservoirSampler(2, seeds.nextLong());
+            for (int number = 0; number < weights.length; number++) {
+                (number % 3 == 0 ? first : second).offer(number, weights[number]);
+            }
+            first.merge(second);
+            for (int number : first.sample()) { counts[number]++; }
+        }
+
+        assertInclusionProbabilities(weights, counts);
+    }
+
+    // Chance of being one of two draws without replacement: drawn first, or drawn second after any other number
+    private static void assertInclusionProbabilities(double[] weights, double[] counts) {
+        final double total = Arrays.stream(weights).sum();
+        for (int i = 0; i < weights.length; i++) {
+            double expected = weights[i] / total;
+            for (int j = 0; j < weights.length; j++) {
+                if (j != i) { expected += weights[j] / total * weights[i] / (total - weights[j]); }
+            }
+            assertEquals(expected, counts[i] / trials, 0.005);
+        }
+    }
+
+    private static List<ProbabilisticRandomGen.NumAndProbability> getMockWeightedNums() {
+        return List.of(
+                new ProbabilisticRandomGen.NumAndProbability(1, 0.1f),
+                new ProbabilisticRandomGen.NumAndProbability(2, 0.3f),
+                new ProbabilisticRandomGen.NumAndProbability(3, 0.2f),
+                new ProbabilisticRandomGen.NumAndProbability(4, 0.2f),
+                new ProbabilisticRandomGen.NumAndProbability(5, 0.15f),
+                new ProbabilisticRandomGen.NumAndProbability(6, 0.05f)
+        );
+    }
+}